@@ -0,0 +1,10 @@
+-- A constant division by zero must not be folded. The program compiles and
+-- fails only when the division is executed.
+
+class Main inherits IO {
+  main() : Object { {
+    out_string("before\n");
+    out_int(7 / (3 - 3));
+    out_string("after\n");
+  } };
+};
@@ -0,0 +1,22 @@
+-- Int arithmetic wraps around on overflow. Constant expressions which
+-- overflow must give the same results as the ones computed at runtime.
+
+class Main inherits IO {
+  max : Int <- 2147483647;
+  main() : Object { {
+    out_int(2147483647 + 1);
+    out_string("\n");
+    out_int(max + 1);
+    out_string("\n");
+    out_int(~2147483647 - 2);
+    out_string("\n");
+    out_int(~max - 2);
+    out_string("\n");
+    out_int(65536 * 65536 + 7);
+    out_string("\n");
+    out_int(46341 * 46341);
+    out_string("\n");
+    let x : Int <- 1073741824 in out_int(x + x);
+    out_string("\n");
+  } };
+};
@@ -0,0 +1,10 @@
+-- A substr of a constant string with constant arguments out of range must
+-- not be folded. It must still abort at runtime.
+
+class Main inherits IO {
+  main() : Object { {
+    out_string("hello".substr(1, 3).concat("\n"));
+    out_string("hello".substr(3, 5).concat("\n"));
+    out_string("not reached\n");
+  } };
+};
@@ -0,0 +1,31 @@
+-- A method small enough to be inlined assigns to its formals. The
+-- assignments must not change the arguments of the caller.
+
+class Counter {
+  n : Int;
+  bump(x : Int) : Int { { x <- x + 1; n <- n + x; x; } };
+  get() : Int { n };
+};
+
+class Main inherits IO {
+  a : Int <- 5;
+  twice(y : Int) : Int { { y <- y * 2; y; } };
+  main() : Object {
+    let c : Counter <- new Counter, b : Int <- 10 in {
+      out_int(c.bump(a));
+      out_string(" ");
+      out_int(a);
+      out_string(" ");
+      out_int(c.bump(b));
+      out_string(" ");
+      out_int(b);
+      out_string(" ");
+      out_int(twice(b));
+      out_string(" ");
+      out_int(b);
+      out_string(" ");
+      out_int(c.get());
+      out_string("\n");
+    }
+  };
+};
@@ -0,0 +1,22 @@
+-- Methods which call other methods, directly or recursively, are not
+-- inlined. They must still be dispatched correctly.
+
+class Math {
+  fact(n : Int) : Int { if n = 0 then 1 else n * fact(n - 1) fi };
+  even(n : Int) : Bool { if n = 0 then true else odd(n - 1) fi };
+  odd(n : Int) : Bool { if n = 0 then false else even(n - 1) fi };
+  sq(x : Int) : Int { x * x };
+  quad(x : Int) : Int { sq(sq(x)) };
+};
+
+class Main inherits IO {
+  main() : Object {
+    let m : Math <- new Math in {
+      out_int(m.fact(10));
+      out_string("\n");
+      if m.even(7) then out_string("even\n") else out_string("odd\n") fi;
+      out_int(m.quad(3));
+      out_string("\n");
+    }
+  };
+};
@@ -0,0 +1,17 @@
+-- A dispatch to a method small enough to be inlined, on a void object,
+-- is still a runtime error.
+
+class Box {
+  v : Int <- 3;
+  get() : Int { v };
+};
+
+class Main inherits IO {
+  b : Box;
+  main() : Object { {
+    out_int((new Box).get());
+    out_string("\n");
+    out_int(b.get());
+    out_string("not reached\n");
+  } };
+};
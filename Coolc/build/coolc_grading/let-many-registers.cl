@@ -0,0 +1,45 @@
+-- More let and case variables are live across the loop than there are
+-- registers to hold them, and the loop dispatches to a method which has
+-- many variables of its own. The variables of the caller must survive the
+-- call.
+
+class Main inherits IO {
+  mix(x : Int, y : Int) : Int {
+    let p : Int <- x + 1, q : Int <- y + 2, r : Int <- p * q,
+        s : Int <- r - x, t : Int <- s + y, u : Int <- t * 2,
+        v : Int <- u - p in {
+      out_string(".");
+      p + q + r + s + t + u + v;
+    }
+  };
+
+  main() : Object {
+    let i : Int <- 0, a : Int <- 1, b : Int <- 2, c : Int <- 3, d : Int <- 4,
+        e : Int <- 5, f : Int <- 6, g : Int <- 7, h : Int <- 8 in {
+      while i < 4 loop {
+        case i of
+          n : Int =>
+            let t : Int <- n * 2, u : Int <- n + a in {
+              a <- a + mix(t, u);
+              b <- b + a;
+              c <- c + b - t;
+              d <- d + c - u;
+              out_int(a + b + c + d + e + f + g + h + t + u);
+              out_string("\n");
+            };
+        esac;
+        i <- i + 1;
+      } pool;
+      out_int(a);
+      out_string(" ");
+      out_int(b);
+      out_string(" ");
+      out_int(c);
+      out_string(" ");
+      out_int(d);
+      out_string(" ");
+      out_int(e + f + g + h);
+      out_string("\n");
+    }
+  };
+};
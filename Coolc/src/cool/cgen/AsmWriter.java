@@ -0,0 +1,304 @@
+package cool.cgen;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Output stream for the generated assembly code.
+ * 
+ * The code generator emits the assembly code a few characters at a time. A
+ * PrintStream converts each of these prints into a string which is encoded
+ * and written to the underlying stream, one system call per print when the
+ * stream is unbuffered. This stream instead appends the characters of the
+ * strings and the digits of the integers directly into a reusable byte buffer,
+ * which is written to the underlying channel only when full or when flushed.
+ * 
+ * The generated assembly code is ASCII. Strings with other characters are
+ * encoded using the default charset, as a PrintStream does.
+ * 
+ * All the print methods of PrintStream are overridden so that nothing bypasses
+ * the buffer. Note that the buffer must be flushed once the code is emitted.
+ */
+public class AsmWriter extends PrintStream
+{
+	/** Size of the buffer */
+	private final static int BUFFER_SIZE = 1 << 16;
+
+	/** The bytes of the line separator */
+	private final static byte[] NEWLINE = System.getProperty("line.separator")
+			.getBytes();
+
+	/** The channel to which the buffer is flushed */
+	private final WritableByteChannel channel;
+
+	private final byte[] buf = new byte[BUFFER_SIZE];
+	private final ByteBuffer bb = ByteBuffer.wrap(buf);
+
+	/** Number of bytes in the buffer */
+	private int pos = 0;
+
+	/** Scratch space for the digits of an integer */
+	private final byte[] digits = new byte[10];
+
+	/**
+	 * Creates an assembly writer which writes to the specified channel, e.g.,
+	 * that of a FileOutputStream
+	 * 
+	 * @param channel the channel
+	 */
+	public AsmWriter(WritableByteChannel channel)
+	{
+		super(Channels.newOutputStream(channel));
+		this.channel = channel;
+	}
+
+	/**
+	 * Creates an assembly writer which writes to the specified stream
+	 * 
+	 * @param out the stream
+	 */
+	public AsmWriter(OutputStream out)
+	{
+		this(Channels.newChannel(out));
+	}
+
+	/** Writes out the buffer to the channel */
+	private void flushBuffer()
+	{
+		bb.clear();
+		bb.limit(pos);
+		try
+		{
+			while (bb.hasRemaining())
+				channel.write(bb);
+		}
+		catch (IOException ex)
+		{
+			setError();
+		}
+		pos = 0;
+	}
+
+	private void put(byte b)
+	{
+		if (pos == BUFFER_SIZE)
+			flushBuffer();
+		buf[pos++] = b;
+	}
+
+	private void put(byte[] b, int off, int len)
+	{
+		if (len > BUFFER_SIZE - pos)
+			flushBuffer();
+		if (len > BUFFER_SIZE)
+		{
+			try
+			{
+				ByteBuffer big = ByteBuffer.wrap(b, off, len);
+				while (big.hasRemaining())
+					channel.write(big);
+			}
+			catch (IOException ex)
+			{
+				setError();
+			}
+			return;
+		}
+		System.arraycopy(b, off, buf, pos, len);
+		pos += len;
+	}
+
+	@Override
+	public void write(int b)
+	{
+		put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len)
+	{
+		put(b, off, len);
+	}
+
+	@Override
+	public void flush()
+	{
+		flushBuffer();
+	}
+
+	@Override
+	public void close()
+	{
+		flushBuffer();
+		try
+		{
+			channel.close();
+		}
+		catch (IOException ex)
+		{
+			setError();
+		}
+	}
+
+	@Override
+	public void print(String s)
+	{
+		if (s == null)
+			s = "null";
+		int len = s.length();
+		for (int i = 0; i < len; i++)
+		{
+			char c = s.charAt(i);
+			if (c >= 0x80)
+			{
+				// Not ASCII. Let the charset deal with the rest of the string
+				byte[] b = s.substring(i).getBytes();
+				put(b, 0, b.length);
+				return;
+			}
+			put((byte) c);
+		}
+	}
+
+	@Override
+	public void print(char c)
+	{
+		if (c >= 0x80)
+			print(String.valueOf(c));
+		else
+			put((byte) c);
+	}
+
+	@Override
+	public void print(int i)
+	{
+		if (i == Integer.MIN_VALUE)
+		{
+			print(String.valueOf(i));
+			return;
+		}
+		if (i < 0)
+		{
+			put((byte) '-');
+			i = -i;
+		}
+		int n = 0;
+		do
+		{
+			digits[n++] = (byte) ('0' + i % 10);
+			i /= 10;
+		}
+		while (i != 0);
+		while (n > 0)
+			put(digits[--n]);
+	}
+
+	@Override
+	public void print(boolean b)
+	{
+		print(String.valueOf(b));
+	}
+
+	@Override
+	public void print(long l)
+	{
+		print(String.valueOf(l));
+	}
+
+	@Override
+	public void print(float f)
+	{
+		print(String.valueOf(f));
+	}
+
+	@Override
+	public void print(double d)
+	{
+		print(String.valueOf(d));
+	}
+
+	@Override
+	public void print(char[] s)
+	{
+		print(new String(s));
+	}
+
+	@Override
+	public void print(Object obj)
+	{
+		print(String.valueOf(obj));
+	}
+
+	@Override
+	public void println()
+	{
+		put(NEWLINE, 0, NEWLINE.length);
+	}
+
+	@Override
+	public void println(String s)
+	{
+		print(s);
+		println();
+	}
+
+	@Override
+	public void println(char c)
+	{
+		print(c);
+		println();
+	}
+
+	@Override
+	public void println(int i)
+	{
+		print(i);
+		println();
+	}
+
+	@Override
+	public void println(boolean b)
+	{
+		print(b);
+		println();
+	}
+
+	@Override
+	public void println(long l)
+	{
+		print(l);
+		println();
+	}
+
+	@Override
+	public void println(float f)
+	{
+		print(f);
+		println();
+	}
+
+	@Override
+	public void println(double d)
+	{
+		print(d);
+		println();
+	}
+
+	@Override
+	public void println(char[] s)
+	{
+		print(s);
+		println();
+	}
+
+	@Override
+	public void println(Object obj)
+	{
+		print(obj);
+		println();
+	}
+}
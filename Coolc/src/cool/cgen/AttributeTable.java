@@ -1,6 +1,7 @@
 package cool.cgen;
 
 import cool.common.AbstractSymbol;
+import cool.common.Utilities;
 
 import cool.parser.TreeNode;
 import cool.parser.attr;
@@ -9,70 +10,71 @@ import cool.parser.method;
 import cool.semant.CNode;
 import cool.semant.ITree;
 
-import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
 
 /**
- * Data structure used to lookup attributes of an object dynamically.
+ * Data structure used to lookup the offsets of the attributes of an object.
  * 
  * Note that in cool as in many other OO languages, it is not possible to
- * override the attributes of an inherited class. This table is used to only
- * to generate code to lookup attributes at runtime based on the evaluated
- * invoking object type. There is no polymorphism involved unlike the method
- * dispatch. Thus it is required to distinguish only between same named
- * attributes of different classes.
+ * override the attributes of an inherited class. An attribute is thus at the
+ * same offset in objects of the class which defines it and of all of its
+ * subclasses. There is no polymorphism involved unlike the method dispatch and
+ * the offset of an attribute can be determined at compile time from the class
+ * in which it is referred to.
  * 
  * @author kempa
  * 
  */
 class AttributeTable
 {
-	private Map<AbstractSymbol, Collection<AttributeRecord>> tbl;
+	/**
+	 * A table of key-value pairs where the key is the class name and the value
+	 * is a mapping from the names of all the attributes visible in that class,
+	 * inherited ones included, to their AttributeRecord objects
+	 */
+	private Map<AbstractSymbol, Map<AbstractSymbol, AttributeRecord>> tbl;
 
 	AttributeTable(ITree iTree)
 	{
 		// only lookup required. Iteration not required
-		tbl = new HashMap<AbstractSymbol, Collection<AttributeRecord>>();
+		tbl = new HashMap<AbstractSymbol, Map<AbstractSymbol, AttributeRecord>>();
 
 		/*
-		 * For all the classes in the cool program just add the non-inherited
-		 * attributes into the attribute table
+		 * For all the classes in the cool program add the attributes of the
+		 * class and of all its ancestors into the attribute table
 		 */
 		for (CNode c : iTree.getClasses())
 		{
-			int offset = c.getOffsetOfFirstNonInheritedAttribute();
-			for (TreeNode t : c.getFeatures().getElements())
+			Map<AbstractSymbol, AttributeRecord> attrs = new HashMap<AbstractSymbol, AttributeRecord>();
+			for (CNode ancestor : c.getAncestors(Utilities.oldestFirst))
 			{
-				if (t instanceof method)
-					continue;
-				attr a = (attr) t;
-				if (!tbl.containsKey(a.getName()))
+				int offset = ancestor.getOffsetOfFirstNonInheritedAttribute();
+				for (TreeNode t : ancestor.getFeatures().getElements())
 				{
-					Collection<AttributeRecord> lst = new LinkedList<AttributeRecord>();
-					for (CNode cSubType : c.getSubtypes())
-						lst.add(new AttributeRecord(offset, cSubType));
-					tbl.put(a.getName(), lst);
+					if (t instanceof method)
+						continue;
+					attr a = (attr) t;
+					attrs.put(a.getName(),
+							new AttributeRecord(offset, ancestor));
+					offset++;
 				}
-				else
-					for (CNode cSubType : c.getSubtypes())
-						tbl.get(a.getName()).add(
-								new AttributeRecord(offset, cSubType));
-				offset++;
 			}
+			tbl.put(c.getName(), attrs);
 		}
 	}
 
 	/**
-	 * Gets the candidate attributes of the specified attribute name
+	 * Gets the record of the specified attribute as visible in the specified
+	 * class
 	 * 
+	 * @param cName The class in which the attribute is referred to
 	 * @param aName The specified attribute name
-	 * @return A collection of the candidate attributes with the specified
-	 *         attribute name
+	 * @return The record of the attribute
 	 */
-	Collection<AttributeRecord> getCandidateAttributes(AbstractSymbol name)
+	AttributeRecord getAttributeRecord(AbstractSymbol cName,
+			AbstractSymbol aName)
 	{
-		return tbl.get(name);
+		return tbl.get(cName).get(aName);
 	}
 }
@@ -0,0 +1,102 @@
+package cool.cgen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A basic block of the intermediate representation.
+ * 
+ * A block starts with its labels, if any, and contains instructions of which
+ * only the last may be a branch. The comments are kept with the instructions
+ * they annotate. Control enters a block only at its start.
+ */
+class BasicBlock
+{
+	/** The lines of the block, labels and comments included */
+	private List<Instruction> lines = new ArrayList<Instruction>();
+
+	private final List<BasicBlock> succ = new ArrayList<BasicBlock>();
+	private final List<BasicBlock> pred = new ArrayList<BasicBlock>();
+
+	List<Instruction> getLines()
+	{
+		return lines;
+	}
+
+	void setLines(List<Instruction> lines)
+	{
+		this.lines = lines;
+	}
+
+	void add(Instruction ins)
+	{
+		lines.add(ins);
+	}
+
+	/** Returns the labels of the block */
+	List<String> getLabels()
+	{
+		List<String> labels = new ArrayList<String>();
+		for (Instruction ins : lines)
+			if (ins.isLabel())
+				labels.add(ins.getLabel());
+		return labels;
+	}
+
+	/** Returns the last instruction of the block, or null if there are none */
+	Instruction getLast()
+	{
+		for (int i = lines.size() - 1; i >= 0; i--)
+			if (lines.get(i).isInstruction())
+				return lines.get(i);
+		return null;
+	}
+
+	/** Returns the first instruction of the block, or null if there are none */
+	Instruction getFirst()
+	{
+		for (Instruction ins : lines)
+			if (ins.isInstruction())
+				return ins;
+		return null;
+	}
+
+	/** Replaces the specified instruction of the block */
+	void replace(Instruction ins, Instruction with)
+	{
+		int i = lines.indexOf(ins);
+		if (with == null)
+			lines.remove(i);
+		else
+			lines.set(i, with);
+	}
+
+	/** Can control flow from the end of the block to the next one? */
+	boolean fallsThrough()
+	{
+		Instruction last = getLast();
+		return last == null || !last.isUnconditional();
+	}
+
+	List<BasicBlock> getSuccessors()
+	{
+		return succ;
+	}
+
+	List<BasicBlock> getPredecessors()
+	{
+		return pred;
+	}
+
+	void addEdge(BasicBlock to)
+	{
+		succ.add(to);
+		to.pred.add(this);
+	}
+
+	void clearEdges()
+	{
+		succ.clear();
+		pred.clear();
+	}
+}
@@ -21,8 +21,6 @@ package cool.cgen;
  PROVIDE MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
  */
 
-import java.io.PrintStream;
-
 /**
  * This class encapsulates all aspects of code generation for boolean
  * constants. String constants and Int constants are handled by
@@ -57,34 +55,31 @@ public class BoolConst
 	final static BoolConst falsebool = new BoolConst(false);
 
 	/**
-	 * Emits a reference to this boolean constant.
-	 * 
-	 * @param s the output stream
+	 * Returns a reference to this boolean constant.
 	 * */
-	void codeRef(PrintStream s)
+	String getRef()
 	{
-		s.print(CgenSupport.BOOLCONST_PREFIX + (val ? "1" : "0"));
+		return CgenSupport.BOOLCONST_PREFIX + (val ? '1' : '0');
 	}
 
 	/**
 	 * Generates code for the boolean constant definition.
 	 * 
 	 * @param boolclasstag the class tag for string object
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * 
 	 * */
-	void codeDef(int boolclasstag, PrintStream s)
+	void codeDef(int boolclasstag, InstructionList s)
 	{
 		// Add -1 eye catcher
-		s.println(CgenSupport.WORD + "-1");
-		codeRef(s);
-		s.print(CgenSupport.LABEL); // label
-		s.println(CgenSupport.WORD + boolclasstag); // tag
-		s.println(CgenSupport.WORD
-				+ (CgenSupport.DEFAULT_OBJFIELDS + CgenSupport.BOOL_SLOTS)); // size
-		s.println(CgenSupport.WORD + "Bool" + CgenSupport.DISPTAB_SUFFIX); // dispatch
-																			// table
+		CgenSupport.emitWord(-1, s);
+		CgenSupport.emitLabelDef(getRef(), s); // label
+		CgenSupport.emitWord(boolclasstag, s); // tag
+		CgenSupport.emitWord(CgenSupport.DEFAULT_OBJFIELDS
+				+ CgenSupport.BOOL_SLOTS, s); // size
+		// dispatch table
+		CgenSupport.emitWord("Bool" + CgenSupport.DISPTAB_SUFFIX, s);
 
-		s.println(CgenSupport.WORD + (val ? "1" : "0")); // value (0 or 1)
+		CgenSupport.emitWord(val ? 1 : 0, s); // value (0 or 1)
 	}
 }
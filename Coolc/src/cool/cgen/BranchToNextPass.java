@@ -0,0 +1,34 @@
+package cool.cgen;
+
+/**
+ * Drops the branches to the block right after them.
+ */
+class BranchToNextPass extends OptimizationPass
+{
+	BranchToNextPass()
+	{
+		super("branch to next label");
+	}
+
+	@Override
+	boolean run(ControlFlowGraph cfg)
+	{
+		boolean changed = false;
+		for (BasicBlock b : cfg.getBlocks())
+		{
+			BasicBlock next = cfg.getNext(b);
+			Instruction last = b.getLast();
+			while (next != null && last != null && last.isBranch()
+					&& next.getLabels().contains(last.getTarget()))
+			{
+				b.replace(last, null);
+				hit();
+				changed = true;
+				last = b.getLast();
+			}
+		}
+		if (changed)
+			cfg.computeEdges();
+		return changed;
+	}
+}
@@ -47,7 +47,7 @@ class Cgen
 			ASTParser parser = new ASTParser(lexer);
 			Object result = parser.parse().value;
 
-			PrintStream output = System.out;
+			PrintStream output = new AsmWriter(System.out);
 			String filename = null;
 			if (Flags.out_filename == null)
 			{
@@ -67,7 +67,8 @@ class Cgen
 			{
 				try
 				{
-					output = new PrintStream(new FileOutputStream(filename));
+					output = new AsmWriter(new FileOutputStream(filename)
+							.getChannel());
 				}
 				catch (IOException ex)
 				{
@@ -76,6 +77,7 @@ class Cgen
 			}
 
 			((Program) result).cgen(output);
+			output.flush();
 		}
 		catch (Exception ex)
 		{
@@ -14,7 +14,8 @@ import cool.parser.no_expr;
 import cool.semant.CNode;
 import cool.semant.ITree;
 
-import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
 import java.util.PriorityQueue;
 
 public class CgenDataSection
@@ -24,7 +25,8 @@ public class CgenDataSection
 	{
 	}
 
-	public static void code(ITree iTree, CgenLookupTable tbl, PrintStream str)
+	public static void code(ITree iTree, CgenLookupTable tbl,
+			InstructionList str)
 	{
 		if (Flags.cgen_debug)
 			System.out.println("coding global data");
@@ -38,122 +40,128 @@ public class CgenDataSection
 			System.out.println("coding constants");
 		codeConstants(iTree, str);
 
-		str.println("# Begin - Class name table");
-		str.println("# Class name table contains addresses of String objects"
+		str.comment("Begin - Class name table");
+		str.comment("Class name table contains addresses of String objects"
 				+ " representing all the classes in the program. These can be"
 				+ " indexed using the classtag of objects");
-		str.println("# Used by Object.type_name() to return name of the "
+		str.comment("Used by Object.type_name() to return name of the "
 				+ "invoking object");
 		codeClassNameTab(iTree, str);
-		str.println("# End - Class name table\n");
+		str.comment("End - Class name table");
+		str.blank();
 
-		str.println("# Begin - Class Object table");
-		str.println("# Contains pointers to prototype objects of all classes "
+		str.comment("Begin - Class Object table");
+		str.comment("Contains pointers to prototype objects of all classes "
 				+ "and to their initializers. These can be indexed using the "
 				+ "classtag of objexts");
-		str.println("# Used to create objects for the expression, "
+		str.comment("Used to create objects for the expression, "
 				+ "new SELF_TYPE");
-		codeObjTab(iTree, str);
-		str.println("# End - Class Object table\n");
-
-		str.println("# Begin - Dispatch tables");
-		str.println("# Dispatch table of all classes");
-		codeDispTab(iTree, str);
-		str.println("# End - Dispatch tables\n");
-
-		str.println("# Begin - Prototype objects");
-		str.println("# Prototype objects for all classes. Used to create new "
+		codeObjTab(iTree, tbl, str);
+		str.comment("End - Class Object table");
+		str.blank();
+
+		str.comment("Begin - Dispatch tables");
+		str.comment("Dispatch table of all classes");
+		codeDispTab(iTree, tbl, str);
+		str.comment("End - Dispatch tables");
+		str.blank();
+
+		str.comment("Begin - Prototype objects");
+		str.comment("Prototype objects for all classes. Used to create new "
 				+ "objects for the respective classes");
-		codePrototypeObjects(iTree, str);
-		str.println("# End - Prototype objects");
+		codePrototypeObjects(iTree, tbl, str);
+		str.comment("End - Prototype objects");
 
 		if (Flags.cgen_debug)
 			System.out.println("coding global text");
 		codeGlobalText(str);
 
-		str.println("# Begin - Object Initializers");
+		str.comment("Begin - Object Initializers");
 		codeObjInit(iTree, tbl, str);
-		str.println("# End - Object Initializers");
+		str.comment("End - Object Initializers");
 	}
 
 	/**
 	 * Emits code to start the .data segment and to
 	 * declare the global names.
 	 * */
-	private static void codeGlobalData(ITree iTree, PrintStream str)
+	private static void codeGlobalData(ITree iTree, InstructionList str)
 	{
 		// The following global names must be defined first.
 
-		str.print("\t.data\n" + CgenSupport.ALIGN);
-		str.println(CgenSupport.GLOBAL + CgenSupport.CLASSNAMETAB);
-		str.print(CgenSupport.GLOBAL);
-		CgenSupport.emitProtObjRef(TreeConstants.Main, str);
-		str.println("");
-		str.print(CgenSupport.GLOBAL);
-		CgenSupport.emitProtObjRef(TreeConstants.Int, str);
-		str.println("");
-		str.print(CgenSupport.GLOBAL);
-		CgenSupport.emitProtObjRef(TreeConstants.Str, str);
-		str.println("");
-		str.print(CgenSupport.GLOBAL);
-		BoolConst.falsebool.codeRef(str);
-		str.println("");
-		str.print(CgenSupport.GLOBAL);
-		BoolConst.truebool.codeRef(str);
-		str.println("");
-		str.println(CgenSupport.GLOBAL + CgenSupport.INTTAG);
-		str.println(CgenSupport.GLOBAL + CgenSupport.BOOLTAG);
-		str.println(CgenSupport.GLOBAL + CgenSupport.STRINGTAG);
+		CgenSupport.emitDirective(CgenSupport.DATA, str);
+		CgenSupport.emitDirective(CgenSupport.ALIGN, 2, str);
+		CgenSupport.emitGlobal(CgenSupport.CLASSNAMETAB, str);
+		CgenSupport.emitGlobal(
+				CgenSupport.getProtObjRef(TreeConstants.Main), str);
+		CgenSupport.emitGlobal(
+				CgenSupport.getProtObjRef(TreeConstants.Int), str);
+		CgenSupport.emitGlobal(
+				CgenSupport.getProtObjRef(TreeConstants.Str), str);
+		CgenSupport.emitGlobal(BoolConst.falsebool.getRef(), str);
+		CgenSupport.emitGlobal(BoolConst.truebool.getRef(), str);
+		CgenSupport.emitGlobal(CgenSupport.INTTAG, str);
+		CgenSupport.emitGlobal(CgenSupport.BOOLTAG, str);
+		CgenSupport.emitGlobal(CgenSupport.STRINGTAG, str);
 
 		// We also need to know the tag of the Int, String, and Bool classes
 		// during code generation.
 		// why??? Incomplete
 
-		str.println(CgenSupport.INTTAG + CgenSupport.LABEL + CgenSupport.WORD
-				+ (iTree.toINode(TreeConstants.Int)).getClassTag());
-		str.println(CgenSupport.BOOLTAG + CgenSupport.LABEL + CgenSupport.WORD
-				+ (iTree.toINode(TreeConstants.Bool)).getClassTag());
-		str.println(CgenSupport.STRINGTAG + CgenSupport.LABEL
-				+ CgenSupport.WORD
-				+ (iTree.toINode(TreeConstants.Str)).getClassTag());
+		CgenSupport.emitLabelDef(CgenSupport.INTTAG, str);
+		CgenSupport.emitWord((iTree.toINode(TreeConstants.Int)).getClassTag(),
+				str);
+		CgenSupport.emitLabelDef(CgenSupport.BOOLTAG, str);
+		CgenSupport.emitWord((iTree.toINode(TreeConstants.Bool)).getClassTag(),
+				str);
+		CgenSupport.emitLabelDef(CgenSupport.STRINGTAG, str);
+		CgenSupport.emitWord((iTree.toINode(TreeConstants.Str)).getClassTag(),
+				str);
 	}
 
 	/** Generates GC choice constants (pointers to GC functions) */
-	private static void codeSelectGc(PrintStream str)
+	private static void codeSelectGc(InstructionList str)
 	{
-		str.println(CgenSupport.GLOBAL + "_MemMgr_INITIALIZER");
-		str.println("_MemMgr_INITIALIZER:");
-		str.println(CgenSupport.WORD
-				+ CgenSupport.gcInitNames[Flags.cgen_Memmgr]);
-
-		str.println(CgenSupport.GLOBAL + "_MemMgr_COLLECTOR");
-		str.println("_MemMgr_COLLECTOR:");
-		str.println(CgenSupport.WORD
-				+ CgenSupport.gcCollectNames[Flags.cgen_Memmgr]);
-
-		str.println(CgenSupport.GLOBAL + "_MemMgr_TEST");
-		str.println("_MemMgr_TEST:");
-		str.println(CgenSupport.WORD
-				+ ((Flags.cgen_Memmgr_Test == Flags.GC_TEST) ? "1" : "0"));
+		CgenSupport.emitGlobal("_MemMgr_INITIALIZER", str);
+		CgenSupport.emitLabelDef("_MemMgr_INITIALIZER", str);
+		CgenSupport.emitWord(CgenSupport.gcInitNames[Flags.cgen_Memmgr], str);
+
+		CgenSupport.emitGlobal("_MemMgr_COLLECTOR", str);
+		CgenSupport.emitLabelDef("_MemMgr_COLLECTOR", str);
+		CgenSupport.emitWord(CgenSupport.gcCollectNames[Flags.cgen_Memmgr],
+				str);
+
+		CgenSupport.emitGlobal("_MemMgr_TEST", str);
+		CgenSupport.emitLabelDef("_MemMgr_TEST", str);
+		CgenSupport.emitWord(
+				(Flags.cgen_Memmgr_Test == Flags.GC_TEST) ? "1" : "0", str);
 	}
 
 	/**
 	 * Emits code to reserve space for and initialise all of the
 	 * constants. Class names should have been added to the string
 	 * table (in the supplied code, is is done during the construction
-	 * of the inheritance graph), and code for emitting string constants
-	 * as a side effect adds the string's length to the integer table.
-	 * The constants are emmitted by running through the stringtable and
-	 * inttable and producing code for each entry.
+	 * of the inheritance graph). The lengths of the strings are added
+	 * to the integer table, and both tables are renumbered, before any
+	 * constant is emitted. The constants are emmitted by running
+	 * through the stringtable and inttable and producing code for each
+	 * entry.
 	 */
-	private static void codeConstants(ITree iTree, PrintStream str)
+	private static void codeConstants(ITree iTree, InstructionList str)
 	{
 		// Add constants that are required by the code generator.
 		AbstractTable.stringtable.addString("");
 		AbstractTable.inttable.addString("0");
 
-		// The string table must first be codified as the sizes of the string
-		// are then added to the int table which is then codified
+		// The string constant objects refer to their lengths. These are added
+		// to the int table now so that they are numbered with the others
+		AbstractTable.stringtable.addLengths();
+
+		// Number the constants independently of the order in which they
+		// were interned, before their labels are used
+		AbstractTable.stringtable.renumber();
+		AbstractTable.inttable.renumber();
+
 		AbstractTable.stringtable.codeStringTable(
 				(iTree.toINode(TreeConstants.Str)).getClassTag(), str);
 		AbstractTable.inttable.codeStringTable(
@@ -164,20 +172,20 @@ public class CgenDataSection
 	}
 
 	/** Emits code definitions for boolean constants. */
-	private static void codeBools(int classtag, PrintStream str)
+	private static void codeBools(int classtag, InstructionList str)
 	{
 		BoolConst.falsebool.codeDef(classtag, str);
 		BoolConst.truebool.codeDef(classtag, str);
 	}
 
 	/** Emits code definition for void */
-	private static void codeVoid(PrintStream str)
+	private static void codeVoid(InstructionList str)
 	{
 		// Add -1 eye catcher
-		str.println(CgenSupport.WORD + "-1");
-		str.println(CgenSupport.VOIDCONST_PREFIX + CgenSupport.LABEL
-				+ CgenSupport.WORD + CgenSupport.VOID_CLASSTAG); // tag
-		str.println(CgenSupport.WORD + (CgenSupport.DEFAULT_OBJFIELDS - 1)); // size
+		CgenSupport.emitWord(-1, str);
+		CgenSupport.emitLabelDef(CgenSupport.VOIDCONST_PREFIX, str);
+		CgenSupport.emitWord(CgenSupport.VOID_CLASSTAG, str); // tag
+		CgenSupport.emitWord(CgenSupport.DEFAULT_OBJFIELDS - 1, str); // size
 	}
 
 	/**
@@ -186,18 +194,19 @@ public class CgenDataSection
 	 * A table, which at index, (class tag) ∗ 4, contains a pointer
 	 * to a 'String' object containing the name of the class associated
 	 */
-	private static void codeClassNameTab(ITree iTree, PrintStream str)
+	private static void codeClassNameTab(ITree iTree, InstructionList str)
 	{
 		// The PQ sorts the nodes w.r.t the class tags.
 		PriorityQueue<CNode> pq = new PriorityQueue<CNode>(iTree.getClasses());
 
 		// Generate the class-name table
-		str.print(CgenSupport.CLASSNAMETAB + CgenSupport.LABEL);
+		CgenSupport.emitLabelDef(CgenSupport.CLASSNAMETAB, str);
 		while (!pq.isEmpty())
 		{
 			AbstractSymbol cName = pq.remove().getName();
-			str.println(CgenSupport.WORD + CgenSupport.STRCONST_PREFIX
-					+ AbstractTable.stringtable.lookup(cName.toString()).index);
+			CgenSupport.emitWord(CgenSupport.STRCONST_PREFIX
+					+ AbstractTable.stringtable.lookup(cName.toString()).index,
+					str);
 		}
 
 	}
@@ -212,47 +221,55 @@ public class CgenDataSection
 	 * This is required so that objects can be created for the expression
 	 * 'new SELF_TYPE'
 	 */
-	private static void codeObjTab(ITree iTree, PrintStream str)
+	private static void codeObjTab(ITree iTree, CgenLookupTable tbl,
+			InstructionList str)
 	{
 		// The PQ sorts the nodes w.r.t the class tags.
 		PriorityQueue<CNode> pq = new PriorityQueue<CNode>(iTree.getClasses());
 
 		// Generate the object table
-		str.print(CgenSupport.CLASSOBJTAB + CgenSupport.LABEL);
+		CgenSupport.emitLabelDef(CgenSupport.CLASSOBJTAB, str);
 		while (!pq.isEmpty())
 		{
 			CNode nd = pq.remove();
-			str.println(CgenSupport.WORD + nd.getName().toString()
-					+ CgenSupport.PROTOBJ_SUFFIX);
-			str.println(CgenSupport.WORD + nd.getName().toString()
-					+ CgenSupport.CLASSINIT_SUFFIX);
+			if (!tbl.isLive(nd.getName()))
+			{
+				// No object has the tag of a dead class
+				CgenSupport.emitWord(0, str);
+				CgenSupport.emitWord(0, str);
+				continue;
+			}
+			CgenSupport.emitWord(CgenSupport.getProtObjRef(nd.getName()), str);
+			CgenSupport.emitWord(CgenSupport.getInitRef(nd.getName()), str);
 		}
 	}
 
 	/**
 	 * Index for dispatch tables of all classes
-	 * Also construb the method table used to generate code for dynamic dispatch
+	 * The slots are laid out as given by the dispatch table used to generate
+	 * code for dynamic dispatch
 	 */
-	private static void codeDispTab(ITree iTree, PrintStream str)
+	private static void codeDispTab(ITree iTree, CgenLookupTable tbl,
+			InstructionList str)
 	{
 		for (CNode nd : iTree.getClasses())
 		{// For each class
+			if (!tbl.isLive(nd.getName()))
+				continue;
 
-			str.print(nd.getName().toString() + CgenSupport.DISPTAB_SUFFIX
-					+ CgenSupport.LABEL);
+			CgenSupport.emitLabelDef(
+					CgenSupport.getDispTableRef(nd.getName()), str);
 
-			// For each ancestor of this class
-			for (CNode p : nd.getAncestors(Utilities.oldestFirst))
-			{
-				for (TreeNode t1 : p.getFeatures().getElements())
-				{
-					if (t1 instanceof attr)
-						continue;
-					// An entry of each method
-					str.println(CgenSupport.WORD + p.getName().toString() + "."
-							+ ((method) t1).getName());
-				}
-			}
+			// An entry for each slot, i.e., for each method name visible in
+			// this class. The entry is the most specific definition of it, or
+			// 0 if it is not reachable.
+			for (DispatchRecord d : tbl.getDispatchRecords(nd.getName()))
+				if (!tbl.isReachable(d.getMethod()))
+					CgenSupport.emitWord(0, str);
+				else
+					CgenSupport.emitWord(CgenSupport.getMethodRef(
+							d.getClass_().getName(), d.getMethod().getName()),
+							str);
 		}
 	}
 
@@ -261,83 +278,81 @@ public class CgenDataSection
 	 * program. Used by Object.copy() to create new objects
 	 * 
 	 */
-	private static void codePrototypeObjects(ITree iTree, PrintStream str)
+	private static void codePrototypeObjects(ITree iTree,
+			CgenLookupTable tbl, InstructionList str)
 	{
 		for (CNode c : iTree.getClasses())
 		{
+			if (!tbl.isLive(c.getName()))
+				continue;
 
-			str.println(CgenSupport.WORD + "-1"); // Add -1 eye catcher
-			str.print(c.getName() + CgenSupport.PROTOBJ_SUFFIX
-					+ CgenSupport.LABEL); // label
-			str.println(CgenSupport.WORD
-					+ (iTree.toINode(c.getName())).getClassTag()); // tag
+			CgenSupport.emitWord(-1, str); // Add -1 eye catcher
+			CgenSupport.emitLabelDef(CgenSupport.getProtObjRef(c.getName()),
+					str); // label
+			CgenSupport.emitWord((iTree.toINode(c.getName())).getClassTag(),
+					str); // tag
 
 			if (c.getName().equals(TreeConstants.Object_))
 			{
 				// Object size
-				str.println(CgenSupport.WORD + (CgenSupport.DEFAULT_OBJFIELDS));
-				str.println(CgenSupport.WORD + c.getName().toString()
-						+ CgenSupport.DISPTAB_SUFFIX); // dispatch table
+				CgenSupport.emitWord(CgenSupport.DEFAULT_OBJFIELDS, str);
+				CgenSupport.emitWord(CgenSupport.getDispTableRef(c.getName()),
+						str); // dispatch table
 			}
 			else if (c.getName().equals(TreeConstants.Str))
 			{
 				// object size
-				str.println(CgenSupport.WORD
-						+ (CgenSupport.DEFAULT_OBJFIELDS
-								+ CgenSupport.STRING_SLOTS + (CgenSupport.STR_DEFAULT
-								.length() + 4) / 4));
-				str.println(CgenSupport.WORD + c.getName().toString()
-						+ CgenSupport.DISPTAB_SUFFIX); // dispatch table
+				CgenSupport.emitWord(CgenSupport.DEFAULT_OBJFIELDS
+						+ CgenSupport.STRING_SLOTS
+						+ (CgenSupport.STR_DEFAULT.length() + 4) / 4, str);
+				CgenSupport.emitWord(CgenSupport.getDispTableRef(c.getName()),
+						str); // dispatch table
 				// length
-				str.print(CgenSupport.WORD);
-				((IntSymbol) (AbstractTable.inttable
+				CgenSupport.emitWord(((IntSymbol) (AbstractTable.inttable
 						.lookup(((Integer) CgenSupport.STR_DEFAULT.length())
-								.toString()))).codeRef(str);
-				str.println();
+								.toString()))).getRef(), str);
 
 				// default string
 				CgenSupport.emitStringConstant(CgenSupport.STR_DEFAULT, str);
 			}
 			else if (c.getName().equals(TreeConstants.Int))
 			{
-				str.println(CgenSupport.WORD
-						+ (CgenSupport.DEFAULT_OBJFIELDS + CgenSupport.INT_SLOTS));// object
-																					// size
-				str.println(CgenSupport.WORD + c.getName().toString()
-						+ CgenSupport.DISPTAB_SUFFIX); // dispatch table
-				str.println(CgenSupport.WORD + CgenSupport.INT_DEFAULT);
+				// object size
+				CgenSupport.emitWord(CgenSupport.DEFAULT_OBJFIELDS
+						+ CgenSupport.INT_SLOTS, str);
+				CgenSupport.emitWord(CgenSupport.getDispTableRef(c.getName()),
+						str); // dispatch table
+				CgenSupport.emitWord(CgenSupport.INT_DEFAULT, str);
 			}
 			else if (c.getName().equals(TreeConstants.Bool))
 			{
-				str.println(CgenSupport.WORD
-						+ (CgenSupport.DEFAULT_OBJFIELDS + CgenSupport.BOOL_SLOTS));// object
-																					// size
-				str.println(CgenSupport.WORD + c.getName().toString()
-						+ CgenSupport.DISPTAB_SUFFIX); // dispatch table
-				str.println(CgenSupport.WORD + CgenSupport.BOOL_DEFAULT);
+				// object size
+				CgenSupport.emitWord(CgenSupport.DEFAULT_OBJFIELDS
+						+ CgenSupport.BOOL_SLOTS, str);
+				CgenSupport.emitWord(CgenSupport.getDispTableRef(c.getName()),
+						str); // dispatch table
+				CgenSupport.emitWord(CgenSupport.BOOL_DEFAULT, str);
 			}
 			else if (c.getName().equals(TreeConstants.IO))
 			{
-				str.println(CgenSupport.WORD + CgenSupport.DEFAULT_OBJFIELDS);// object
-																				// size
-				str.println(CgenSupport.WORD + c.getName().toString()
-						+ CgenSupport.DISPTAB_SUFFIX); // dispatch table
+				// object size
+				CgenSupport.emitWord(CgenSupport.DEFAULT_OBJFIELDS, str);
+				CgenSupport.emitWord(CgenSupport.getDispTableRef(c.getName()),
+						str); // dispatch table
 			}
 			else
 			// user class prototype object
 			{
-				str.println(CgenSupport.WORD
-						+ (CgenSupport.DEFAULT_OBJFIELDS + c.getAllAttributes()
-								.size())); // size
-				str.println(CgenSupport.WORD + c.getName().toString()
-						+ CgenSupport.DISPTAB_SUFFIX); // dispatch table
+				CgenSupport.emitWord(CgenSupport.DEFAULT_OBJFIELDS
+						+ c.getAllAttributes().size(), str); // size
+				CgenSupport.emitWord(CgenSupport.getDispTableRef(c.getName()),
+						str); // dispatch table
 
 				// Initialize all attributes from the
 				// inheritance hierarchy in the parent first order.
 				for (attr a : c.getAllAttributes())
-					str.println(CgenSupport.WORD
-							+ CgenUtilities.getDefaultObjectAddress(a
-									.getTypeDecl()));
+					CgenSupport.emitWord(CgenUtilities
+							.getDefaultObjectAddress(a.getTypeDecl()), str);
 			}
 		}
 	}
@@ -346,48 +361,51 @@ public class CgenDataSection
 	 * Emits code to start the .text segment and to
 	 * declare the global names.
 	 * */
-	private static void codeGlobalText(PrintStream str)
+	private static void codeGlobalText(InstructionList str)
 	{
-		str.println(CgenSupport.GLOBAL + CgenSupport.HEAP_START);
-		str.print(CgenSupport.HEAP_START + CgenSupport.LABEL);
-		str.println(CgenSupport.WORD + 0);
-		str.println("\t.text");
-		str.print(CgenSupport.GLOBAL);
-		CgenSupport.emitInitRef(TreeConstants.Main, str);
-		str.println("");
-		str.print(CgenSupport.GLOBAL);
-		CgenSupport.emitInitRef(TreeConstants.Int, str);
-		str.println("");
-		str.print(CgenSupport.GLOBAL);
-		CgenSupport.emitInitRef(TreeConstants.Str, str);
-		str.println("");
-		str.print(CgenSupport.GLOBAL);
-		CgenSupport.emitInitRef(TreeConstants.Bool, str);
-		str.println("");
-		str.print(CgenSupport.GLOBAL);
-		CgenSupport.emitMethodRef(TreeConstants.Main, TreeConstants.main_meth,
-				str);
-		str.println("");
+		CgenSupport.emitGlobal(CgenSupport.HEAP_START, str);
+		CgenSupport.emitLabelDef(CgenSupport.HEAP_START, str);
+		CgenSupport.emitWord(0, str);
+		CgenSupport.emitDirective(CgenSupport.TEXT, str);
+		CgenSupport.emitGlobal(CgenSupport.getInitRef(TreeConstants.Main), str);
+		CgenSupport.emitGlobal(CgenSupport.getInitRef(TreeConstants.Int), str);
+		CgenSupport.emitGlobal(CgenSupport.getInitRef(TreeConstants.Str), str);
+		CgenSupport.emitGlobal(CgenSupport.getInitRef(TreeConstants.Bool), str);
+		CgenSupport.emitGlobal(CgenSupport.getMethodRef(TreeConstants.Main,
+				TreeConstants.main_meth), str);
 	}
 
 	/**
 	 * Initializers for objects of all classes
 	 */
-	static void codeObjInit(ITree iTree, CgenLookupTable tbl, PrintStream str)
+	static void codeObjInit(ITree iTree, CgenLookupTable tbl,
+			InstructionList str)
 	{
 		for (CNode c : iTree.getClasses())
 		{
+			if (!tbl.isLive(c.getName()))
+				continue;
 			int nAR = 0;
-			str.print(c.getName().toString() + CgenSupport.CLASSINIT_SUFFIX
-					+ CgenSupport.LABEL);
+			CgenSupport.setLabelNamespace(c.getName()
+					+ CgenSupport.INITLABEL_SUFFIX);
+			CgenSupport.emitLabelDef(CgenSupport.getInitRef(c.getName()), str);
 
 			// Callee responsibility
-			str.println("#Set up the FP");
+			str.comment("Set up the FP");
 			CgenSupport.emitMove(CgenSupport.FP, CgenSupport.SP, str);
-			str.println();
-			str.println("#Save return address");
+			str.blank();
+			str.comment("Save return address");
 			nAR = CgenSupport.emitPush(CgenSupport.RA, nAR, str);
-			str.println();
+			str.blank();
+
+			// The initializers save no registers other than SELF. Their
+			// local variables are kept in the stack
+			tbl.enterMethod(0);
+			List<String> saved = Collections.singletonList(CgenSupport.SELF);
+			str.comment("Hold self in " + CgenSupport.SELF);
+			nAR = CgenSupport.emitSaveRegisters(saved, nAR, str);
+			CgenSupport.emitMove(CgenSupport.SELF, CgenSupport.ACC, str);
+			str.blank();
 
 			// Need to call the init of the parent of the class of this object
 
@@ -395,67 +413,52 @@ public class CgenDataSection
 			// 1. Save my FP
 			nAR = CgenSupport.emitPush(CgenSupport.FP, nAR, str);
 
-			// Save self Object
-			nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, str);
-			// Call the initializer of the parent
+			// Call the initializer of the parent. Self is in ACC
 			if (!c.getName().equals(TreeConstants.Object_))
 				CgenSupport.emitJal(c.getParentNd().getName().toString()
 						+ CgenSupport.CLASSINIT_SUFFIX, str);
-			// Restore the self Object
-			nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, str);
 
 			// Caller responsibility
 			// 1. Restore my FP
 			nAR = CgenSupport.emitPop(CgenSupport.FP, nAR, str);
 
 			// Basic classes whose attributes cannot be initialised explicitly
-			if (c.getName().equals(TreeConstants.Int)
+			boolean basic = c.getName().equals(TreeConstants.Int)
 					|| c.getName().equals(TreeConstants.Str)
-					|| c.getName().equals(TreeConstants.Bool))
-			{
-				nAR = CgenSupport.emitPop(CgenSupport.RA, nAR, str);
-				CgenSupport.emitReturn(str); // return
-				continue;
-			}
+					|| c.getName().equals(TreeConstants.Bool);
 
 			// Initialize attributes of this object. The inherited attributes
 			// are initialised by the parent initializer
 			int offset = c.getOffsetOfFirstNonInheritedAttribute();
 			for (TreeNode t : c.getFeatures().getElements())
 			{
-				if (t instanceof method)
+				if (basic || t instanceof method)
 					continue;
 				attr a = (attr) t;
 
-				// Save self Object
-				nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, str);
-
 				if (a.getInit() instanceof no_expr)// Incomplete hack
 				{
-					// Restore the self Object
-					nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, str);
-
 					CgenSupport.emitLoadAddress(CgenSupport.T1, CgenUtilities
 							.getDefaultObjectAddress(a.getTypeDecl()), str);
 					CgenSupport.emitStore(CgenSupport.T1, offset,
-							CgenSupport.ACC, str);
+							CgenSupport.SELF, str);
 				}
 				else
 				{
 					tbl.enterScope();
-					a.getInit().code(c, nAR, tbl, str);
+					nAR = a.getInit().code(c, nAR, tbl, str);
 					tbl.exitScope();
-					CgenSupport.emitMove(CgenSupport.T1, CgenSupport.ACC, str);
-
-					// Restore the self Object
-					nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, str);
 
 					// Set initializer
-					CgenSupport.emitStore(CgenSupport.T1, offset,
-							CgenSupport.ACC, str);
+					CgenSupport.emitStore(CgenSupport.ACC, offset,
+							CgenSupport.SELF, str);
 				}
 				offset++;
 			}
+
+			// Return self
+			CgenSupport.emitMove(CgenSupport.ACC, CgenSupport.SELF, str);
+			nAR = CgenSupport.emitRestoreRegisters(saved, nAR, str);
 			nAR = CgenSupport.emitPop(CgenSupport.RA, nAR, str);
 			CgenSupport.emitReturn(str); // return
 		}
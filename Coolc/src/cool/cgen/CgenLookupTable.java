@@ -1,62 +1,249 @@
 package cool.cgen;
 
 import cool.common.AbstractSymbol;
+import cool.common.Flags;
 import cool.common.SymbolTable;
 
 import cool.parser.class_;
+import cool.parser.method;
 
+import cool.semant.CNode;
 import cool.semant.ITree;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import java.util.Collection;
+import java.util.List;
 
 public class CgenLookupTable extends SymbolTable
 {
 	private ITree iTree;
 	private DispatchTable dTab;
 	private AttributeTable aTab;
-	private CgenCaseTable cTab;
+
+	/**
+	 * Number of dispatches whose method is resolved at compile time and
+	 * called directly
+	 */
+	private AtomicInteger devirtualized;
+
+	/** Number of dispatches replaced by the body of the method */
+	private AtomicInteger inlined;
+
+	/** Registers of the method being coded */
+	private RegisterAllocator registers;
+
+	/** Reachability of the methods and classes. Null unless optimizing */
+	private RapidTypeAnalysis rta;
 
 	public CgenLookupTable(ITree iTree)
 	{
 		this.iTree = iTree;
 		dTab = new DispatchTable(iTree);
 		aTab = new AttributeTable(iTree);
-		cTab = new CgenCaseTable(iTree);
+		devirtualized = new AtomicInteger();
+		inlined = new AtomicInteger();
+		registers = new RegisterAllocator();
+		if (Flags.cgen_optimize)
+			rta = new RapidTypeAnalysis(iTree, dTab);
 	}
 
-	public Collection<DispatchRecord> getDispatchCandidates(AbstractSymbol sym)
+	/**
+	 * Creates a lookup table with an empty scope stack which shares the other
+	 * tables with the specified lookup table. Used to code classes
+	 * concurrently
+	 * 
+	 * @param tbl The specified lookup table
+	 */
+	public CgenLookupTable(CgenLookupTable tbl)
 	{
-		return dTab.getDispatchCandidates(sym);
+		this.iTree = tbl.iTree;
+		dTab = tbl.dTab;
+		aTab = tbl.aTab;
+		devirtualized = tbl.devirtualized;
+		inlined = tbl.inlined;
+		registers = new RegisterAllocator();
+		rta = tbl.rta;
 	}
 
-	public int nDispatchCandidates(AbstractSymbol sym)
+	/**
+	 * Creates a lookup table with an empty scope stack which shares the other
+	 * tables, and the registers, with this lookup table. Used to code the body
+	 * of a method inlined into the method being coded
+	 */
+	public CgenLookupTable newInlineTable()
 	{
-		return dTab.getDispatchCandidates(sym).size();
+		CgenLookupTable tbl = new CgenLookupTable(this);
+		tbl.registers = registers;
+		return tbl;
 	}
 
-	public int getMethodOffset(AbstractSymbol cName, AbstractSymbol mName)
+	/**
+	 * Starts the allocation of registers for a method
+	 * 
+	 * @param demand The number of registers demanded by the body of the method
+	 * @return The registers which the method must save on entry
+	 */
+	public List<String> enterMethod(int demand)
 	{
-		return dTab.getDispatchRecord(iTree.toINode(cName), mName).getOffset();
+		return registers.enterMethod(demand);
 	}
 
-	public int getClassTag(AbstractSymbol type)
+	/**
+	 * Returns a free register for a local variable or a temporary, or null if
+	 * there are none
+	 */
+	public String allocateRegister()
 	{
-		return iTree.toINode(type).getClassTag();
+		return registers.allocate();
+	}
+
+	/**
+	 * Returns a free register for a temporary, or null if there are none or if
+	 * the code being generated is not within a loop
+	 */
+	public String allocateTemporary()
+	{
+		return registers.allocateTemporary();
+	}
+
+	/**
+	 * Marks the start of the code of a loop
+	 */
+	public void enterLoop()
+	{
+		registers.enterLoop();
+	}
+
+	/**
+	 * Marks the end of the code of a loop
+	 */
+	public void exitLoop()
+	{
+		registers.exitLoop();
+	}
+
+	/**
+	 * Is the code being generated within a loop?
+	 */
+	public boolean isInLoop()
+	{
+		return registers.isInLoop();
+	}
+
+	/**
+	 * Frees the register allocated last
+	 */
+	public void freeRegister(String reg)
+	{
+		registers.free(reg);
 	}
 
-	public Collection<AttributeRecord> getCandidateAttributes(AbstractSymbol sym)
+	/**
+	 * Records a dispatch whose method is resolved at compile time and called
+	 * directly
+	 */
+	public void countDevirtualized()
 	{
-		return aTab.getCandidateAttributes(sym);
+		devirtualized.incrementAndGet();
+	}
+
+	public int getDevirtualizedCount()
+	{
+		return devirtualized.get();
+	}
+
+	/**
+	 * Records a dispatch replaced by the body of the method
+	 */
+	public void countInlined()
+	{
+		inlined.incrementAndGet();
+	}
+
+	public int getInlinedCount()
+	{
+		return inlined.get();
+	}
+
+	/**
+	 * Is the method reachable from Main.main? Every method is, unless
+	 * optimizing
+	 */
+	public boolean isReachable(method m)
+	{
+		return rta == null || rta.isReachable(m);
+	}
+
+	/**
+	 * Are objects of the class, or of one of its subclasses, created? Objects
+	 * of every class are, unless optimizing
+	 */
+	public boolean isLive(AbstractSymbol cName)
+	{
+		return rta == null || rta.isLive(cName);
+	}
+
+	/**
+	 * Returns the reachability analysis, or null unless optimizing
+	 */
+	public RapidTypeAnalysis getReachability()
+	{
+		return rta;
+	}
+
+	public Collection<DispatchRecord> getDispatchRecords(AbstractSymbol cName)
+	{
+		return dTab.getDispatchRecords(cName);
+	}
+
+	public DispatchRecord getDispatchRecord(AbstractSymbol cName,
+			AbstractSymbol mName)
+	{
+		return dTab.getDispatchRecord(cName, mName);
+	}
+
+	/**
+	 * Returns the dispatch record of the method invoked by a dynamic dispatch
+	 * of the specified method on an object of the specified static type, if
+	 * the method is not overridden in any of the subclasses of the type. The
+	 * method invoked is then known at compile time. Returns null otherwise,
+	 * and if the method is not reachable, as the invoking object is then
+	 * always void.
+	 * 
+	 * @param cName The static type of the invoking object
+	 * @param mName The name of the method
+	 * @return The dispatch record of the method, or null
+	 */
+	public DispatchRecord getFinalDispatchRecord(AbstractSymbol cName,
+			AbstractSymbol mName)
+	{
+		DispatchRecord r = dTab.getDispatchRecord(cName, mName);
+		for (CNode sub : iTree.toINode(cName).getSubtypes())
+			if (dTab.getDispatchRecord(sub.getName(), mName).getMethod() != r
+					.getMethod())
+				return null;
+		return isReachable(r.getMethod()) ? r : null;
+	}
+
+	public int getMethodOffset(AbstractSymbol cName, AbstractSymbol mName)
+	{
+		return dTab.getDispatchRecord(cName, mName).getOffset();
+	}
+
+	public int getClassTag(AbstractSymbol type)
+	{
+		return iTree.toINode(type).getClassTag();
 	}
 
-	public Collection<Integer> getCaseTableKeySet()
+	public int getLastSubtypeClassTag(AbstractSymbol type)
 	{
-		return cTab.keySet();
+		return iTree.toINode(type).getLastSubtypeClassTag();
 	}
 
-	public Collection<Collection<Integer>> getCaseTableValues()
+	public int getAttributeOffset(AbstractSymbol cName, AbstractSymbol aName)
 	{
-		return cTab.values();
+		return aTab.getAttributeRecord(cName, aName).getOffset();
 	}
 
 	public class_ toClass_(AbstractSymbol type)
@@ -25,8 +25,9 @@ package cool.cgen;
 
 import cool.common.AbstractSymbol;
 import cool.common.Flags;
+import cool.common.TreeConstants;
 
-import java.io.PrintStream;
+import java.util.List;
 
 /**
  * This class aggregates all kinds of support routines and constants
@@ -47,7 +48,20 @@ public class CgenSupport
 
 	public final static int BOOL_TRUE = 1;
 	public final static int BOOL_FALSE = 0;
-	private static int label = 0;
+
+	/**
+	 * Labels are allocated from class-local namespaces so that the classes of
+	 * a program can be coded independently of each other, and concurrently.
+	 * A thread codes one class at a time and thus keeps its own namespace.
+	 */
+	private static final ThreadLocal<LabelNamespace> labels = new ThreadLocal<LabelNamespace>()
+	{
+		@Override
+		protected LabelNamespace initialValue()
+		{
+			return new LabelNamespace("label");
+		}
+	};
 
 	public final static int MAXINT = 100000000;
 	public final static int WORD_SIZE = 4;
@@ -67,6 +81,8 @@ public class CgenSupport
 	public final static String DISPTAB_SUFFIX = "_dispTab";
 	public final static String METHOD_SEP = ".";
 	public final static String CLASSINIT_SUFFIX = "_init";
+	public final static String LABEL_SUFFIX = "_label";
+	public final static String INITLABEL_SUFFIX = "_initlabel";
 	public final static String PROTOBJ_SUFFIX = "_protObj";
 	public final static String OBJECTPROTOBJ = "Object" + PROTOBJ_SUFFIX;
 	public final static String INTCONST_PREFIX = "int_const";
@@ -75,7 +91,6 @@ public class CgenSupport
 	public final static String VOIDCONST_PREFIX = "void_const";
 
 	public final static int EMPTYSLOT = 0;
-	public final static String LABEL = ":\n";
 
 	// information about object headers
 	public final static int DEFAULT_OBJFIELDS = 3;
@@ -91,9 +106,14 @@ public class CgenSupport
 	public final static int INT_SLOTS = 1;
 	public final static int BOOL_SLOTS = 1;
 
-	public final static String GLOBAL = "\t.globl\t";
-	public final static String ALIGN = "\t.align\t2\n";
-	public final static String WORD = "\t.word\t";
+	// Directives
+	public final static String DATA = ".data";
+	public final static String TEXT = ".text";
+	public final static String GLOBAL = ".globl";
+	public final static String ALIGN = ".align";
+	public final static String WORD = ".word";
+	public final static String ASCII = ".ascii";
+	public final static String BYTE = ".byte";
 
 	// register names,
 	public final static String ZERO = "$zero"; // Zero register
@@ -108,33 +128,67 @@ public class CgenSupport
 	public final static String RA = "$ra"; // Return address
 
 	// Opcodes
-	public final static String JALR = "\tjalr\t";
-	public final static String JAL = "\tjal\t";
-	public final static String RET = "\tjr\t" + RA + "\t";
-
-	public final static String SW = "\tsw\t";
-	public final static String LW = "\tlw\t";
-	public final static String LI = "\tli\t";
-	public final static String LA = "\tla\t";
-
-	public final static String MOVE = "\tmove\t";
-	public final static String NEG = "\tneg\t";
-	public final static String ADD = "\tadd\t";
-	public final static String ADDI = "\taddi\t";
-	public final static String ADDU = "\taddu\t";
-	public final static String ADDIU = "\taddiu\t";
-	public final static String DIV = "\tdiv\t";
-	public final static String MUL = "\tmul\t";
-	public final static String SUB = "\tsub\t";
-	public final static String SLT = "\tslt\t";
-	public final static String SLL = "\tsll\t";
-	public final static String BEQZ = "\tbeqz\t";
-	public final static String BRANCH = "\tb\t";
-	public final static String BEQ = "\tbeq\t";
-	public final static String BNE = "\tbne\t";
-	public final static String BLEQ = "\tble\t";
-	public final static String BLT = "\tblt\t";
-	public final static String BGT = "\tbgt\t";
+	public final static String JALR = "jalr";
+	public final static String JAL = "jal";
+	public final static String JR = "jr";
+
+	public final static String SW = "sw";
+	public final static String LW = "lw";
+	public final static String LI = "li";
+	public final static String LA = "la";
+
+	public final static String MOVE = "move";
+	public final static String NEG = "neg";
+	public final static String ADD = "add";
+	public final static String ADDI = "addi";
+	public final static String ADDU = "addu";
+	public final static String ADDIU = "addiu";
+	public final static String DIV = "div";
+	public final static String MUL = "mul";
+	public final static String SUB = "sub";
+	public final static String SLT = "slt";
+	public final static String SLL = "sll";
+	public final static String BEQZ = "beqz";
+	public final static String BRANCH = "b";
+	public final static String BEQ = "beq";
+	public final static String BNE = "bne";
+	public final static String BLEQ = "ble";
+	public final static String BLT = "blt";
+	public final static String BGT = "bgt";
+
+	/*
+	 * The instructions are not printed but added to the intermediate
+	 * representation of the code, which is lowered to MIPS assembly once
+	 * the code of the program is generated and optimized.
+	 */
+
+	/** Emits an instruction of the form, op r1 r2 */
+	private static void emitRR(String op, String r1, String r2,
+			InstructionList s)
+	{
+		s.add(Instruction.rr(op, r1, r2));
+	}
+
+	/** Emits an instruction of the form, op r1 r2 r3 */
+	private static void emitRRR(String op, String r1, String r2, String r3,
+			InstructionList s)
+	{
+		s.add(Instruction.rrr(op, r1, r2, r3));
+	}
+
+	/** Emits an instruction of the form, op r1 r2 imm */
+	private static void emitRRI(String op, String r1, String r2, int imm,
+			InstructionList s)
+	{
+		s.add(Instruction.rri(op, r1, r2, imm));
+	}
+
+	/** Emits an instruction of the form, op r1 imm */
+	private static void emitRI(String op, String r1, int imm,
+			InstructionList s)
+	{
+		s.add(Instruction.ri(op, r1, imm));
+	}
 
 	// Incomplete : Throw exception of used with SP
 	/**
@@ -143,13 +197,12 @@ public class CgenSupport
 	 * @param dest_reg the destination register
 	 * @param offset the word offset from source register
 	 * @param source_reg the source register
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitLoad(String dest_reg, int offset, String source_reg,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.println(LW + dest_reg + " " + offset * WORD_SIZE + "(" + source_reg
-				+ ")");
+		s.add(Instruction.load(LW, dest_reg, offset * WORD_SIZE, source_reg));
 	}
 
 	// Incomplete : Throw exception of used with SP
@@ -159,13 +212,12 @@ public class CgenSupport
 	 * @param dest_reg the destination register
 	 * @param offset the word offset from source register
 	 * @param source_reg the source register
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitStore(String source_reg, int offset,
-			String dest_reg, PrintStream s)
+			String dest_reg, InstructionList s)
 	{
-		s.println(SW + source_reg + " " + offset * WORD_SIZE + "(" + dest_reg
-				+ ")");
+		s.add(Instruction.store(SW, source_reg, offset * WORD_SIZE, dest_reg));
 	}
 
 	/**
@@ -173,11 +225,11 @@ public class CgenSupport
 	 * 
 	 * @param dest_reg the destination register
 	 * @param val the integer value
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitLoadImm(String dest_reg, int val, PrintStream s)
+	public static void emitLoadImm(String dest_reg, int val, InstructionList s)
 	{
-		s.println(LI + dest_reg + " " + val);
+		emitRI(LI, dest_reg, val, s);
 	}
 
 	/**
@@ -185,23 +237,12 @@ public class CgenSupport
 	 * 
 	 * @param dest_reg the destination register
 	 * @param address the address from which a word is loaded
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitLoadAddress(String dest_reg, String address,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.println(LA + dest_reg + " " + address);
-	}
-
-	/**
-	 * Emits an LA instruction without the address part.
-	 * 
-	 * @param dest_reg the destination register
-	 * @param s the output stream
-	 * */
-	public static void emitPartialLoadAddress(String dest_reg, PrintStream s)
-	{
-		s.print(LA + dest_reg + " ");
+		s.add(Instruction.rl(LA, dest_reg, address));
 	}
 
 	/**
@@ -209,13 +250,12 @@ public class CgenSupport
 	 * 
 	 * @param dest_reg the destination register
 	 * @param b the boolean constant
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitLoadBool(String dest_reg, BoolConst b, PrintStream s)
+	public static void emitLoadBool(String dest_reg, BoolConst b,
+			InstructionList s)
 	{
-		emitPartialLoadAddress(dest_reg, s);
-		b.codeRef(s);
-		s.println("");
+		emitLoadAddress(dest_reg, b.getRef(), s);
 	}
 
 	/**
@@ -223,14 +263,12 @@ public class CgenSupport
 	 * 
 	 * @param dest_reg the destination register
 	 * @param str the string constant
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitLoadString(String dest_reg, StringSymbol str,
-			PrintStream s)
+			InstructionList s)
 	{
-		emitPartialLoadAddress(dest_reg, s);
-		str.codeRef(s);
-		s.println("");
+		emitLoadAddress(dest_reg, str.getRef(), s);
 	}
 
 	/**
@@ -238,13 +276,12 @@ public class CgenSupport
 	 * 
 	 * @param dest_reg the destination register
 	 * @param i the integer constant
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitLoadInt(String dest_reg, IntSymbol i, PrintStream s)
+	public static void emitLoadInt(String dest_reg, IntSymbol i,
+			InstructionList s)
 	{
-		emitPartialLoadAddress(dest_reg, s);
-		i.codeRef(s);
-		s.println("");
+		emitLoadAddress(dest_reg, i.getRef(), s);
 	}
 
 	/**
@@ -252,12 +289,12 @@ public class CgenSupport
 	 * 
 	 * @param dest_reg the destination register
 	 * @param source_reg the source register
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitMove(String dest_reg, String source_reg,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.println(MOVE + dest_reg + " " + source_reg);
+		emitRR(MOVE, dest_reg, source_reg, s);
 	}
 
 	/**
@@ -265,11 +302,12 @@ public class CgenSupport
 	 * 
 	 * @param dest_reg the destination register
 	 * @param source_reg the source register
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitNeg(String dest_reg, String source_reg, PrintStream s)
+	public static void emitNeg(String dest_reg, String source_reg,
+			InstructionList s)
 	{
-		s.println(NEG + dest_reg + " " + source_reg);
+		emitRR(NEG, dest_reg, source_reg, s);
 	}
 
 	/**
@@ -278,12 +316,12 @@ public class CgenSupport
 	 * @param dest_reg the destination register
 	 * @param src1 the source register 1
 	 * @param src2 the source register 2
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitAdd(String dest_reg, String src1, String src2,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.println(ADD + dest_reg + " " + src1 + " " + src2);
+		emitRRR(ADD, dest_reg, src1, src2, s);
 	}
 
 	/**
@@ -292,12 +330,12 @@ public class CgenSupport
 	 * @param dest_reg the destination register
 	 * @param src1 the source register 1
 	 * @param src2 the source register 2
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitAddu(String dest_reg, String src1, String src2,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.println(ADDU + dest_reg + " " + src1 + " " + src2);
+		emitRRR(ADDU, dest_reg, src1, src2, s);
 	}
 
 	/**
@@ -306,12 +344,12 @@ public class CgenSupport
 	 * @param dest_reg the destination register
 	 * @param src the source register
 	 * @param imm the immediate
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitAddiu(String dest_reg, String src, int imm,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.println(ADDIU + dest_reg + " " + src + " " + imm);
+		emitRRI(ADDIU, dest_reg, src, imm, s);
 	}
 
 	/**
@@ -320,12 +358,12 @@ public class CgenSupport
 	 * @param dest_reg the destination register
 	 * @param src1 the source register 1
 	 * @param src2 the source register 2
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitDiv(String dest_reg, String src1, String src2,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.println(DIV + dest_reg + " " + src1 + " " + src2);
+		emitRRR(DIV, dest_reg, src1, src2, s);
 	}
 
 	/**
@@ -334,12 +372,12 @@ public class CgenSupport
 	 * @param dest_reg the destination register
 	 * @param src1 the source register 1
 	 * @param src2 the source register 2
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitMul(String dest_reg, String src1, String src2,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.println(MUL + dest_reg + " " + src1 + " " + src2);
+		emitRRR(MUL, dest_reg, src1, src2, s);
 	}
 
 	/**
@@ -348,18 +386,18 @@ public class CgenSupport
 	 * @param dest_reg the destination register
 	 * @param src1 the source register 1
 	 * @param src2 the source register 2
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitSub(String dest_reg, String src1, String src2,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.println(SUB + dest_reg + " " + src1 + " " + src2);
+		emitRRR(SUB, dest_reg, src1, src2, s);
 	}
 
 	public static void emitSlt(String dest_reg, String src1, String src2,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.println(SLT + dest_reg + " " + src1 + " " + src2);
+		emitRRR(SLT, dest_reg, src1, src2, s);
 	}
 
 	/**
@@ -368,135 +406,240 @@ public class CgenSupport
 	 * @param dest_reg the destination register
 	 * @param src1 the source register 1
 	 * @param num the number of bits to shift
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitSll(String dest_reg, String src1, int num,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.println(SLL + dest_reg + " " + src1 + " " + num);
+		emitRRI(SLL, dest_reg, src1, num, s);
 	}
 
 	/**
 	 * Emits a JALR instruction.
 	 * 
 	 * @param dest_reg the register with target address
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitJalr(String dest_reg, PrintStream s)
+	public static void emitJalr(String dest_reg, InstructionList s)
 	{
-		s.println(JALR + dest_reg);
+		s.add(Instruction.jumpRegister(JALR, dest_reg));
 	}
 
 	/**
 	 * Emits a JAL instruction.
 	 * 
 	 * @param dest the target address or label
-	 * @param s the output stream
+	 * @param s the list to which the code is added
+	 * */
+	public static void emitJal(String dest, InstructionList s)
+	{
+		s.add(Instruction.jump(JAL, dest));
+	}
+
+	/**
+	 * Emits a JAL instruction to a method of a class.
+	 * 
+	 * @param classname the name of the class
+	 * @param methodname the name of the method
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitJal(String dest, PrintStream s)
+	public static void emitJal(AbstractSymbol classname,
+			AbstractSymbol methodname, InstructionList s)
 	{
-		s.println(JAL + dest);
+		emitJal(getMethodRef(classname, methodname), s);
 	}
 
 	/**
 	 * Emits a RET instruction.
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitReturn(PrintStream s)
+	public static void emitReturn(InstructionList s)
 	{
-		s.println(RET);
+		s.add(Instruction.jumpRegister(JR, RA));
 	}
 
 	/**
 	 * Emits a call to gc_assign.
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitGCAssign(PrintStream s)
+	public static void emitGCAssign(InstructionList s)
 	{
-		s.println(JAL + "_GenGC_Assign");
+		emitJal("_GenGC_Assign", s);
 	}
 
 	/**
-	 * Emits a reference to dispatch table.
+	 * Returns a reference to dispatch table.
 	 * 
 	 * @param sym the name of the class
-	 * @param s the output stream
 	 * */
-	public static void emitDispTableRef(AbstractSymbol sym, PrintStream s)
+	public static String getDispTableRef(AbstractSymbol sym)
 	{
-		s.print(sym + DISPTAB_SUFFIX);
+		return sym + DISPTAB_SUFFIX;
 	}
 
 	/**
-	 * Emits a reference to class' init() method.
+	 * Returns a reference to class' init() method.
 	 * 
 	 * @param sym the name of the class
-	 * @param s the output stream
 	 * */
-	public static void emitInitRef(AbstractSymbol sym, PrintStream s)
+	public static String getInitRef(AbstractSymbol sym)
 	{
-		s.print(sym + CLASSINIT_SUFFIX);
+		return sym + CLASSINIT_SUFFIX;
 	}
 
 	/**
-	 * Emits a reference to class' prototype object.
+	 * Returns a reference to class' prototype object.
 	 * 
 	 * @param sym the name of the class
-	 * @param s the output stream
 	 * */
-	public static void emitProtObjRef(AbstractSymbol sym, PrintStream s)
+	public static String getProtObjRef(AbstractSymbol sym)
 	{
-		s.print(sym + PROTOBJ_SUFFIX);
+		return sym + PROTOBJ_SUFFIX;
 	}
 
 	/**
-	 * Emits a reference to a method in a class
+	 * Returns a reference to a method in a class
 	 * 
 	 * @param classname the name of the class
 	 * @param methodname the name of the method
-	 * @param s the output stream
 	 * */
-	public static void emitMethodRef(AbstractSymbol classname,
-			AbstractSymbol methodname, PrintStream s)
+	public static String getMethodRef(AbstractSymbol classname,
+			AbstractSymbol methodname)
 	{
-		s.print(classname + METHOD_SEP + methodname);
+		return classname + METHOD_SEP + methodname;
 	}
 
+	/**
+	 * Emits a definition of a method
+	 * 
+	 * @param classname the name of the class
+	 * @param methodname the name of the method
+	 * @param s the list to which the code is added
+	 * */
 	public static void emitMethodDef(AbstractSymbol classname,
-			AbstractSymbol methodname, PrintStream s)
+			AbstractSymbol methodname, InstructionList s)
+	{
+		s.add(Instruction.label(getMethodRef(classname, methodname)));
+		s.blank();
+	}
+
+	/**
+	 * Emits a definition of a label
+	 * 
+	 * @param name the name of the label
+	 * @param s the list to which the code is added
+	 * */
+	public static void emitLabelDef(String name, InstructionList s)
 	{
-		emitMethodRef(classname, methodname, s);
-		s.println(CgenSupport.LABEL);
+		s.add(Instruction.label(name));
+	}
+
+	/**
+	 * Emits a directive without arguments, e.g., .data
+	 * 
+	 * @param op the directive
+	 * @param s the list to which the code is added
+	 * */
+	public static void emitDirective(String op, InstructionList s)
+	{
+		s.add(Instruction.directive(op, null));
+	}
+
+	/**
+	 * Emits a directive
+	 * 
+	 * @param op the directive, e.g., GLOBAL
+	 * @param arg the argument of the directive
+	 * @param s the list to which the code is added
+	 * */
+	public static void emitDirective(String op, String arg, InstructionList s)
+	{
+		s.add(Instruction.directive(op, arg));
+	}
+
+	/**
+	 * Emits a directive with an integer argument
+	 * 
+	 * @param op the directive, e.g., ALIGN
+	 * @param arg the argument of the directive
+	 * @param s the list to which the code is added
+	 * */
+	public static void emitDirective(String op, int arg, InstructionList s)
+	{
+		s.add(Instruction.directive(op, arg));
+	}
+
+	/**
+	 * Emits a .globl directive
+	 * 
+	 * @param name the name which is declared global
+	 * @param s the list to which the code is added
+	 * */
+	public static void emitGlobal(String name, InstructionList s)
+	{
+		emitDirective(GLOBAL, name, s);
+	}
+
+	/**
+	 * Emits a .word directive
+	 * 
+	 * @param word the label
+	 * @param s the list to which the code is added
+	 * */
+	public static void emitWord(String word, InstructionList s)
+	{
+		emitDirective(WORD, word, s);
+	}
+
+	/**
+	 * Emits a .word directive
+	 * 
+	 * @param word the word
+	 * @param s the list to which the code is added
+	 * */
+	public static void emitWord(int word, InstructionList s)
+	{
+		emitDirective(WORD, word, s);
+	}
+
+	/**
+	 * Starts a new namespace from which the current thread allocates labels.
+	 * Label numbers start from '0' in each namespace and are prefixed with
+	 * the name of the namespace when emitted
+	 * 
+	 * @param prefix the name of the namespace
+	 */
+	public static void setLabelNamespace(String prefix)
+	{
+		labels.set(new LabelNamespace(prefix));
 	}
 
 	public static int getLabel()
 	{
-		return label++;
+		return labels.get().next++;
 	}
 
 	/**
-	 * Emits a reference to a label
+	 * Returns a reference to a label
 	 * 
 	 * @param label the label number
-	 * @param s the output stream
 	 * */
-	public static void emitLabelRef(int label, PrintStream s)
+	public static String getLabelRef(int label)
 	{
-		s.print("label" + label);
+		return labels.get().prefix + label;
 	}
 
 	/**
 	 * Emits a definition of a label
 	 * 
 	 * @param label the label number
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitLabelDef(int label, PrintStream s)
+	public static void emitLabelDef(int label, InstructionList s)
 	{
-		emitLabelRef(label, s);
-		s.println(":");
+		emitLabelDef(getLabelRef(label), s);
 	}
 
 	/**
@@ -504,13 +647,11 @@ public class CgenSupport
 	 * 
 	 * @param src the source register
 	 * @param label the label number
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitBeqz(String src, int label, PrintStream s)
+	public static void emitBeqz(String src, int label, InstructionList s)
 	{
-		s.print(BEQZ + src + " ");
-		emitLabelRef(label, s);
-		s.println("");
+		s.add(Instruction.branch(BEQZ, src, null, getLabelRef(label)));
 	}
 
 	/**
@@ -519,14 +660,12 @@ public class CgenSupport
 	 * @param src1 the source register 1
 	 * @param src2 the source register 2
 	 * @param label the label number
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitBeq(String src1, String src2, int label,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.print(BEQ + src1 + " " + src2 + " ");
-		emitLabelRef(label, s);
-		s.println("");
+		s.add(Instruction.branch(BEQ, src1, src2, getLabelRef(label)));
 	}
 
 	/**
@@ -535,14 +674,12 @@ public class CgenSupport
 	 * @param src1 the source register 1
 	 * @param src2 the source register 2
 	 * @param label the label number
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitBne(String src1, String src2, int label,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.print(BNE + src1 + " " + src2 + " ");
-		emitLabelRef(label, s);
-		s.println("");
+		s.add(Instruction.branch(BNE, src1, src2, getLabelRef(label)));
 	}
 
 	/**
@@ -551,14 +688,12 @@ public class CgenSupport
 	 * @param src1 the source register 1
 	 * @param src2 the source register 2
 	 * @param label the label number
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitBleq(String src1, String src2, int label,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.print(BLEQ + src1 + " " + src2 + " ");
-		emitLabelRef(label, s);
-		s.println("");
+		s.add(Instruction.branch(BLEQ, src1, src2, getLabelRef(label)));
 	}
 
 	/**
@@ -567,14 +702,12 @@ public class CgenSupport
 	 * @param src1 the source register 1
 	 * @param src2 the source register 2
 	 * @param label the label number
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
 	public static void emitBlt(String src1, String src2, int label,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.print(BLT + src1 + " " + src2 + " ");
-		emitLabelRef(label, s);
-		s.println("");
+		s.add(Instruction.branch(BLT, src1, src2, getLabelRef(label)));
 	}
 
 	/**
@@ -583,13 +716,13 @@ public class CgenSupport
 	 * @param src the source register
 	 * @param imm the immediate
 	 * @param label the label number
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitBlti(String src, int imm, int label, PrintStream s)
+	public static void emitBlti(String src, int imm, int label,
+			InstructionList s)
 	{
-		s.print(BLT + src + " " + imm + " ");
-		emitLabelRef(label, s);
-		s.println("");
+		s.add(Instruction.branch(BLT, src, imm,
+				getLabelRef(label)));
 	}
 
 	/**
@@ -598,26 +731,24 @@ public class CgenSupport
 	 * @param src the source register
 	 * @param imm the immediate
 	 * @param label the label number
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitBgti(String src, int imm, int label, PrintStream s)
+	public static void emitBgti(String src, int imm, int label,
+			InstructionList s)
 	{
-		s.print(BGT + src + " " + imm + " ");
-		emitLabelRef(label, s);
-		s.println("");
+		s.add(Instruction.branch(BGT, src, imm,
+				getLabelRef(label)));
 	}
 
 	/**
 	 * Emits a BRANCH instruction.
 	 * 
 	 * @param label the label number
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitBranch(int label, PrintStream s)
+	public static void emitBranch(int label, InstructionList s)
 	{
-		s.print(BRANCH);
-		emitLabelRef(label, s);
-		s.println("");
+		s.add(Instruction.jump(BRANCH, getLabelRef(label)));
 	}
 
 	/**
@@ -625,49 +756,117 @@ public class CgenSupport
 	 * Stack grows toward smaller addresses.
 	 * 
 	 * @param reg the register
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	static private void emitPush(String reg, PrintStream s)
+	static private void emitPush(String reg, InstructionList s)
 	{
 		emitStore(reg, 0, SP, s);
 		emitAddiu(SP, SP, -4, s);
 	}
 
-	public static int emitPush(String reg, int nAR, PrintStream s)
+	public static int emitPush(String reg, int nAR, InstructionList s)
 	{
 		emitPush(reg, s);
 		nAR++;
-		s.println("\t# nItems = " + nAR);
+		s.comment("nItems = " + nAR);
 		return nAR;
 	}
 
-	static private void emitPop(String reg, PrintStream s)
+	static private void emitPop(String reg, InstructionList s)
 	{
 		emitLoad(reg, 1, SP, s);
 		emitAddiu(SP, SP, CgenSupport.WORD_SIZE, s);
 	}
 
-	public static int emitPop(String reg, int nAR, PrintStream s)
+	public static int emitPop(String reg, int nAR, InstructionList s)
 	{
 		emitPop(reg, s);
 		nAR--;
-		s.println("\t# nItems = " + nAR);
+		s.comment("nItems = " + nAR);
 		return nAR;
 	}
 
-	public static void emitPopAR(int length, PrintStream s)
+	public static void emitPopAR(int length, InstructionList s)
 	{
 		emitAddiu(SP, SP, length * WORD_SIZE, s);
 	}
 
+	/**
+	 * Emits code to push the specified registers, in order, with a single
+	 * adjustment of the SP
+	 * 
+	 * @return The number of items on the current activation record
+	 */
+	public static int emitSaveRegisters(List<String> regs, int nAR,
+			InstructionList s)
+	{
+		if (regs.isEmpty())
+			return nAR;
+		for (int i = 0; i < regs.size(); i++)
+			emitStore(regs.get(i), -i, SP, s);
+		emitAddiu(SP, SP, -regs.size() * WORD_SIZE, s);
+		return nAR + regs.size();
+	}
+
+	/**
+	 * Emits code to pop the registers pushed by emitSaveRegisters()
+	 * 
+	 * @return The number of items on the current activation record
+	 */
+	public static int emitRestoreRegisters(List<String> regs, int nAR,
+			InstructionList s)
+	{
+		if (regs.isEmpty())
+			return nAR;
+		for (int i = 0; i < regs.size(); i++)
+			emitLoad(regs.get(i), regs.size() - i, SP, s);
+		emitAddiu(SP, SP, regs.size() * WORD_SIZE, s);
+		return nAR - regs.size();
+	}
+
+	/**
+	 * Emits code to load a local variable. The location of a local variable is
+	 * either the register which holds it or its offset from the FP
+	 * 
+	 * @param dest_reg the destination register
+	 * @param location the location of the variable
+	 * @param s the list to which the code is added
+	 */
+	public static void emitLoadLocal(String dest_reg, Object location,
+			InstructionList s)
+	{
+		if (location instanceof String)
+			emitMove(dest_reg, (String) location, s);
+		else
+			emitLoad(dest_reg, (Integer) location, FP, s);
+	}
+
+	/**
+	 * Emits code to store into a local variable
+	 * 
+	 * @param source_reg the source register
+	 * @param location the location of the variable
+	 * @param s the list to which the code is added
+	 * @see #emitLoadLocal(String, Object, InstructionList)
+	 */
+	public static void emitStoreLocal(String source_reg, Object location,
+			InstructionList s)
+	{
+		if (location instanceof String)
+			emitMove((String) location, source_reg, s);
+		else
+			emitStore(source_reg, (Integer) location, FP, s);
+	}
+
 	/**
 	 * Emits code to fetch the integer value of the Integer object.
 	 * 
 	 * @param source a pointer to the Integer object
 	 * @param dest the destination register for the value
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitFetchInt(String dest, String source, PrintStream s)
+	public static void emitFetchInt(String dest, String source,
+			InstructionList s)
 	{
 		emitLoad(dest, DEFAULT_OBJFIELDS, source, s);
 	}
@@ -677,31 +876,34 @@ public class CgenSupport
 	 * 
 	 * @param source an integer value
 	 * @param dest the pointer to an Integer object
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitStoreInt(String source, String dest, PrintStream s)
+	public static void emitStoreInt(String source, String dest,
+			InstructionList s)
 	{
 		emitStore(source, DEFAULT_OBJFIELDS, dest, s);
 	}
 
-	public static void emitFetchBool(String dest, String source, PrintStream s)
+	public static void emitFetchBool(String dest, String source,
+			InstructionList s)
 	{
 		emitLoad(dest, DEFAULT_OBJFIELDS, source, s);
 	}
 
-	public static void emitStoreBool(String source, String dest, PrintStream s)
+	public static void emitStoreBool(String source, String dest,
+			InstructionList s)
 	{
 		emitStore(source, DEFAULT_OBJFIELDS, dest, s);
 	}
 
 	public static void emitFetchClassTag(String dest, String source,
-			PrintStream s)
+			InstructionList s)
 	{
 		emitLoad(dest, 0, source, s);
 	}
 
 	public static void emitFetchDispTab(String dest, String source,
-			PrintStream s)
+			InstructionList s)
 	{
 		emitLoad(dest, 2, source, s);
 	}
@@ -709,14 +911,14 @@ public class CgenSupport
 	/**
 	 * Emits code to manipulate garbage collector
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitTestCollector(PrintStream s)
+	public static void emitTestCollector(InstructionList s)
 	{
 		emitPush(ACC, s);
 		emitMove(ACC, SP, s);
 		emitMove(A1, ZERO, s);
-		s.println(JAL + gcCollectNames[Flags.cgen_Memmgr]);
+		emitJal(gcCollectNames[Flags.cgen_Memmgr], s);
 		emitAddiu(SP, SP, 4, s);
 		emitLoad(ACC, 0, SP, s);
 	}
@@ -724,54 +926,39 @@ public class CgenSupport
 	/**
 	 * Emits code to check the garbage collector
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitGCCheck(String source, PrintStream s)
+	public static void emitGCCheck(String source, InstructionList s)
 	{
 		if (source != A1)
 			emitMove(A1, source, s);
-		s.println(JAL + "_gc_check");
+		emitJal("_gc_check", s);
 	}
 
-	private static boolean ascii = false;
-
 	/**
-	 * Switch output mode to ASCII.
+	 * Emits the characters of a string constant collected so far, if any, as
+	 * an .ascii directive
 	 * 
-	 * @param s the output stream
+	 * @param ascii the characters, escaped
+	 * @param s the list to which the code is added
 	 * */
-	public static void asciiMode(PrintStream s)
+	private static void emitAscii(StringBuilder ascii, InstructionList s)
 	{
-		if (!ascii)
-		{
-			s.print("\t.ascii\t\"");
-			ascii = true;
-		}
-	}
-
-	/**
-	 * Switch output mode to BYTE
-	 * 
-	 * @param s the output stream
-	 * */
-	public static void byteMode(PrintStream s)
-	{
-		if (ascii)
-		{
-			s.println("\"");
-			ascii = false;
-		}
+		if (ascii.length() == 0)
+			return;
+		emitDirective(ASCII, "\"" + ascii + "\"", s);
+		ascii.setLength(0);
 	}
 
 	/**
 	 * Emits a string constant.
 	 * 
 	 * @param str the string constant
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public static void emitStringConstant(String str, PrintStream s)
+	public static void emitStringConstant(String str, InstructionList s)
 	{
-		ascii = false;
+		StringBuilder ascii = new StringBuilder();
 
 		for (int i = 0; i < str.length(); i++)
 		{
@@ -780,36 +967,30 @@ public class CgenSupport
 			switch (c)
 			{
 			case '\n':
-				asciiMode(s);
-				s.print("\\n");
+				ascii.append("\\n");
 				break;
 			case '\t':
-				asciiMode(s);
-				s.print("\\t");
+				ascii.append("\\t");
 				break;
 			case '\\':
-				byteMode(s);
-				s.println("\t.byte\t" + (byte) '\\');
+				emitAscii(ascii, s);
+				emitDirective(BYTE, (byte) '\\', s);
 				break;
 			case '"':
-				asciiMode(s);
-				s.print("\\\"");
+				ascii.append("\\\"");
 				break;
 			default:
 				if (c >= 0x20 && c <= 0x7f)
-				{
-					asciiMode(s);
-					s.print(c);
-				}
+					ascii.append(c);
 				else
 				{
-					byteMode(s);
-					s.println("\t.byte\t" + (byte) c);
+					emitAscii(ascii, s);
+					emitDirective(BYTE, (byte) c, s);
 				}
 			}
 		}
-		byteMode(s);
-		s.println("\t.byte\t0\t");
+		emitAscii(ascii, s);
+		emitDirective(BYTE, 0, s);
 	}
 
 	/**
@@ -820,18 +1001,38 @@ public class CgenSupport
 	 * @param s
 	 */
 	public static int emitCallObjectCopy(AbstractSymbol type_name, int nAR,
-			PrintStream s)
+			InstructionList s)
 	{
-		s.println("# Get address of the required prototype object in ACC");
+		s.comment("Get address of the required prototype object in ACC");
 		emitLoadAddress(ACC, type_name.toString() + PROTOBJ_SUFFIX, s);
-		s.println();
+		s.blank();
 
-		s.println("# Create a new object and call its init method");
+		s.comment("Create a new object and call its init method");
 		nAR = emitPush(CgenSupport.FP, nAR, s);
 		emitJal("Object.copy", s);
 		emitJal(type_name.toString() + CLASSINIT_SUFFIX, s);
 		nAR = emitPop(CgenSupport.FP, nAR, s);
-		s.println();
+		s.blank();
+		return nAR;
+	}
+
+	/**
+	 * Emits code to box the raw integer in ACC into a new Int object, a
+	 * reference to which is left in ACC. Int_init is not called as it leaves
+	 * a copy of the prototype object as it is
+	 * 
+	 * @param nAR The number of items on the current activation record
+	 * @param s the list to which the code is added
+	 * @return The number of items on the current activation record
+	 */
+	public static int emitBoxInt(int nAR, InstructionList s)
+	{
+		s.comment("Box the integer value into a new Int object");
+		nAR = emitPush(ACC, nAR, s);
+		emitLoadAddress(ACC, TreeConstants.Int + PROTOBJ_SUFFIX, s);
+		emitJal("Object.copy", s);
+		nAR = emitPop(T1, nAR, s);
+		emitStoreInt(T1, ACC, s);
 		return nAR;
 	}
 
@@ -841,7 +1042,7 @@ public class CgenSupport
 	 * @param type_name
 	 * @param s
 	 */
-	static int emitCallObjectCopy(int nAR, PrintStream s)
+	static int emitCallObjectCopy(int nAR, InstructionList s)
 	{
 		// Address of the required object is in ACC
 		// Get address of the init method
@@ -876,4 +1077,16 @@ public class CgenSupport
 		nAR = emitPop(CgenSupport.FP, nAR, s);
 		return nAR;
 	}
-}
\ No newline at end of file
+
+	/** A namespace of labels */
+	private static class LabelNamespace
+	{
+		final String prefix;
+		int next = 0;
+
+		LabelNamespace(String prefix)
+		{
+			this.prefix = prefix;
+		}
+	}
+}
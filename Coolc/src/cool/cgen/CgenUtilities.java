@@ -2,14 +2,19 @@ package cool.cgen;
 
 import cool.common.AbstractSymbol;
 import cool.common.AbstractTable;
+import cool.common.PossibleNullDereferenceException;
 import cool.common.SymbolTable;
 import cool.common.TreeConstants;
+import cool.common.Utilities;
 
+import cool.parser.Expression;
 import cool.parser.TreeNode;
 import cool.parser.attr;
+import cool.parser.class_;
 import cool.parser.method;
 
 import cool.semant.CNode;
+import cool.semant.SemantUtil;
 
 public class CgenUtilities
 {
@@ -33,6 +38,30 @@ public class CgenUtilities
 		return defaultAddress;
 	}
 
+	/**
+	 * Returns the static type of an expression as inferred during semantic
+	 * analysis. SELF_TYPE is resolved to the class in which the expression
+	 * occurs.
+	 * 
+	 * @param e The expression
+	 * @param c The class in which the expression occurs
+	 * @return The static type of the expression
+	 */
+	public static AbstractSymbol getStaticType(Expression e, class_ c)
+	{
+		try
+		{
+			return SemantUtil.getResolvedType(e.get_type(), c);
+		}
+		catch (PossibleNullDereferenceException ex)
+		{
+			// Semantic analysis sets the type of every expression
+			Utilities.fatalError("Expression without a type at line "
+					+ e.getLineNumber());
+			return null;
+		}
+	}
+
 	/**
 	 * Returns the address of variables which are either
 	 * 1. Object attributes or
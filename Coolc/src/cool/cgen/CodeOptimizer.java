@@ -0,0 +1,114 @@
+package cool.cgen;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Optimizer over the intermediate representation of the generated code.
+ * 
+ * The code generator builds an InstructionList of the program. The elements
+ * between two directives form a region, of which the control flow graph is
+ * built and optimized by the passes of the pass manager. The blocks of the
+ * regions are then linearized back into the list along with the directives.
+ * The list is lowered to MIPS assembly only after it has been optimized.
+ */
+public class CodeOptimizer
+{
+	private final PassManager passes;
+
+	/** Creates an optimizer which runs the default passes */
+	public CodeOptimizer()
+	{
+		this(new PassManager());
+	}
+
+	/**
+	 * Creates an optimizer which runs the passes of the specified pass manager
+	 * 
+	 * @param passes the pass manager
+	 */
+	public CodeOptimizer(PassManager passes)
+	{
+		this.passes = passes;
+	}
+
+	public PassManager getPassManager()
+	{
+		return passes;
+	}
+
+	/**
+	 * Optimizes the code
+	 * 
+	 * @param code the code of the program, which is replaced by the optimized
+	 *            code
+	 */
+	public void optimize(InstructionList code)
+	{
+		List<Instruction> lines = code.getInstructions();
+
+		// Split the code into regions, each led by a directive but the first
+		List<List<Instruction>> regions = new ArrayList<List<Instruction>>();
+		List<Instruction> region = new ArrayList<Instruction>();
+		for (Instruction ins : lines)
+		{
+			if (ins.isDirective())
+			{
+				regions.add(region);
+				region = new ArrayList<Instruction>();
+			}
+			region.add(ins);
+		}
+		regions.add(region);
+
+		Set<String> referenced = getReferencedLabels(regions);
+		List<Instruction> optimized = new ArrayList<Instruction>(lines.size());
+		for (List<Instruction> r : regions)
+		{
+			int start = 0;
+			if (!r.isEmpty() && r.get(0).isDirective())
+			{
+				optimized.add(r.get(0));
+				start = 1;
+			}
+			if (start == r.size())
+				continue;
+			ControlFlowGraph cfg = new ControlFlowGraph(r.subList(start,
+					r.size()), referenced);
+			passes.run(cfg);
+			cfg.linearize(optimized);
+		}
+		code.setInstructions(optimized);
+	}
+
+	/**
+	 * Returns the labels referenced other than by branches within their
+	 * regions, i.e., by directives, by the other instructions and by the
+	 * branches of other regions
+	 */
+	private static Set<String> getReferencedLabels(
+			List<List<Instruction>> regions)
+	{
+		Set<String> referenced = new HashSet<String>();
+		for (List<Instruction> r : regions)
+		{
+			Set<String> defined = new HashSet<String>();
+			for (Instruction ins : r)
+				if (ins.isLabel())
+					defined.add(ins.getLabel());
+			for (Instruction ins : r)
+				if (ins.isBranch())
+				{
+					if (!defined.contains(ins.getTarget()))
+						referenced.add(ins.getTarget());
+				}
+				else if (ins.isInstruction() && ins.getTarget() != null)
+					referenced.add(ins.getTarget());
+				else if (ins.isDirective() && ins.text != null)
+					referenced.add(ins.text);
+		}
+		return referenced;
+	}
+}
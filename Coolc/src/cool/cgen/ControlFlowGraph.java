@@ -0,0 +1,130 @@
+package cool.cgen;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The control flow graph of a region of the generated code, i.e., of the lines
+ * between two directives.
+ * 
+ * The blocks are kept in the order of the code, which is the order in which
+ * they are linearized. A block has an edge to the block of the label to which
+ * it branches and, unless it ends in an unconditional jump, to the block after
+ * it. Control enters the region at its first block and at the labels which are
+ * referenced other than by branches, e.g., by a jal or from a dispatch table.
+ */
+class ControlFlowGraph
+{
+	private final List<BasicBlock> blocks = new ArrayList<BasicBlock>();
+
+	/** The block of each label */
+	private final Map<String, BasicBlock> labels = new HashMap<String, BasicBlock>();
+
+	/** The labels referenced other than by branches */
+	private final Set<String> referenced;
+
+	/**
+	 * Builds the control flow graph of a region
+	 * 
+	 * @param region the lines of the region, none of which is a directive
+	 * @param referenced the labels of the program which are referenced other
+	 *            than by branches
+	 */
+	ControlFlowGraph(List<Instruction> region, Set<String> referenced)
+	{
+		this.referenced = referenced;
+		BasicBlock b = new BasicBlock();
+		boolean hasInstructions = false;
+		for (Instruction ins : region)
+		{
+			if (ins.isLabel() && hasInstructions || ins.isInstruction()
+					&& b.getLast() != null && b.getLast().endsBlock())
+			{
+				blocks.add(b);
+				b = new BasicBlock();
+				hasInstructions = false;
+			}
+			hasInstructions |= ins.isInstruction();
+			b.add(ins);
+		}
+		blocks.add(b);
+		computeEdges();
+	}
+
+	List<BasicBlock> getBlocks()
+	{
+		return blocks;
+	}
+
+	/** Returns the block of the label, or null if it is not in the region */
+	BasicBlock getBlock(String label)
+	{
+		return labels.get(label);
+	}
+
+	/** Returns the block after the specified one, or null if it is the last */
+	BasicBlock getNext(BasicBlock b)
+	{
+		int i = blocks.indexOf(b);
+		return i + 1 < blocks.size() ? blocks.get(i + 1) : null;
+	}
+
+	/** Returns the blocks at which control may enter the region */
+	List<BasicBlock> getEntries()
+	{
+		List<BasicBlock> entries = new ArrayList<BasicBlock>();
+		for (BasicBlock b : blocks)
+			if (entries.isEmpty())
+				entries.add(b);
+			else
+				for (String label : b.getLabels())
+					if (referenced.contains(label))
+					{
+						entries.add(b);
+						break;
+					}
+		return entries;
+	}
+
+	/** Removes the blocks of the specified list */
+	void removeAll(List<BasicBlock> dead)
+	{
+		blocks.removeAll(dead);
+		computeEdges();
+	}
+
+	/**
+	 * Recomputes the labels and the edges after the instructions of the
+	 * blocks are changed
+	 */
+	void computeEdges()
+	{
+		labels.clear();
+		for (BasicBlock b : blocks)
+		{
+			b.clearEdges();
+			for (String label : b.getLabels())
+				labels.put(label, b);
+		}
+		for (int i = 0; i < blocks.size(); i++)
+		{
+			BasicBlock b = blocks.get(i);
+			Instruction last = b.getLast();
+			if (last != null && last.isBranch()
+					&& getBlock(last.getTarget()) != null)
+				b.addEdge(getBlock(last.getTarget()));
+			if (b.fallsThrough() && i + 1 < blocks.size())
+				b.addEdge(blocks.get(i + 1));
+		}
+	}
+
+	/** Appends the blocks of the region, in order, to the specified list */
+	void linearize(List<Instruction> out)
+	{
+		for (BasicBlock b : blocks)
+			out.addAll(b.getLines());
+	}
+}
@@ -3,6 +3,10 @@
  */
 package cool.cgen;
 
+import cool.parser.method;
+
+import cool.semant.CNode;
+
 /**
  * Data structure which contains information required for the dispatch of an
  * associated method
@@ -13,18 +17,25 @@ package cool.cgen;
 
 public class DispatchRecord
 {
-	private int classtag; // The class in which the method is defined
+	private CNode c; // The class in which the method is defined
+	private method m; // The definition of the method
 	private int offset; // Offset of this method in the object dispatch table
 
-	DispatchRecord(int classtag, int offset)
+	DispatchRecord(CNode c, method m, int offset)
 	{
-		this.classtag = classtag;
+		this.c = c;
+		this.m = m;
 		this.offset = offset;
 	}
 
-	public int getClassTag()
+	public CNode getClass_()
+	{
+		return c;
+	}
+
+	public method getMethod()
 	{
-		return classtag;
+		return m;
 	}
 
 	public int getOffset()
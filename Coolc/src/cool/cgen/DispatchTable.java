@@ -12,7 +12,7 @@ import cool.semant.ITree;
 
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 // Done
@@ -22,21 +22,25 @@ import java.util.Map;
 class DispatchTable
 {
 	/**
-	 * The code for dynamic dispatch will need to check the class tag of the
-	 * invoking object first. Based on this it needs to generate a jump which
-	 * will lead to the execution of the specified method belonging to that
-	 * class whose class tag is equal to that of the invoking object.
+	 * The dispatch table of a class has one slot for every method name
+	 * visible in it. The slots of the methods inherited from the parent
+	 * come first and in the same order as in the parent. A method which
+	 * overrides an inherited one takes over the slot of the overridden
+	 * method, while a new method is appended at the end.
 	 * 
-	 * Thus, given a method name, a DispatchTable object must mainly be able
-	 * to return the list of of classes in which a similarly named method exists
+	 * Thus a method name is at the same offset in the dispatch tables of
+	 * the class which first defines it and all of its subclasses. The code
+	 * for dynamic dispatch can then use the offset of the method in the
+	 * static type of the invoking object and simply index the dispatch table
+	 * of the dynamic type of the invoking object with it.
 	 * 
 	 * This is done by maintaining a table of key-value pairs where the key
-	 * is the method name and the value is a list DispatchRecord objects.
-	 * Each DispatchRecord object is representative of a possible dispatch
-	 * candidate for the associated method key.
+	 * is the class name and the value is the dispatch table layout of that
+	 * class, i.e., a mapping from the method names to DispatchRecord objects
+	 * in the slot order.
 	 * 
 	 */
-	private Map<AbstractSymbol, Collection<DispatchRecord>> tbl;
+	private Map<AbstractSymbol, LinkedHashMap<AbstractSymbol, DispatchRecord>> tbl;
 
 	/**
 	 * Constructor which constructs the above described table
@@ -45,20 +49,22 @@ class DispatchTable
 	 */
 	DispatchTable(ITree iTree)
 	{
-		// only lookup required. No iteration through records required
-		tbl = new HashMap<AbstractSymbol, Collection<DispatchRecord>>();
+		// only lookup required at the top level. The slot order of each
+		// class is however needed to lay out the dispatch tables.
+		tbl = new HashMap<AbstractSymbol, LinkedHashMap<AbstractSymbol, DispatchRecord>>();
 
 		// For each class in the program
 		for (CNode c : iTree.getClasses())
 		{
+			LinkedHashMap<AbstractSymbol, DispatchRecord> slots = new LinkedHashMap<AbstractSymbol, DispatchRecord>();
+
 			/*
 			 * The methods of a class includes that of all its ancestors. So
-			 * iterate through the methods of its ancestors to add them to the
-			 * dispatch table. Since the ancestors if a class A includes A
+			 * iterate through the methods of its ancestors, oldest first, to
+			 * lay out the slots. Since the ancestors if a class A includes A
 			 * itself, this iteration adds the methods of the the considered
 			 * class.
 			 */
-			int mOffset = 0;
 			for (CNode ancestor : c.getAncestors(Utilities.oldestFirst))
 			{
 				for (TreeNode t : ancestor.getFeatures().getElements())
@@ -68,57 +74,45 @@ class DispatchTable
 
 					method m = (method) t;
 					/*
-					 * If a method in the considered class, c, overrides
-					 * the method ancestor.m, there is no need to add it to
-					 * the list of probable candidates associated with m.name.
+					 * A redefinition reuses the slot of the method it
+					 * overrides. Re-inserting a key does not change the
+					 * iteration order of a LinkedHashMap.
 					 * 
 					 * This is how polymorphism is implemented, by making sure
-					 * that an a method and its overridden version are associted
-					 * with the respective appropriate class tags.
+					 * that a method and its overridden version are at the
+					 * same offset of the respective dispatch tables.
 					 */
-					if (!c.overridesMethod(ancestor, m.getName()))
-					{
-						DispatchRecord d = new DispatchRecord(c.getClassTag(),
-								mOffset);
-
-						if (tbl.containsKey(m.getName()))
-							tbl.get(m.getName()).add(d);
-						else
-						{
-							Collection<DispatchRecord> l = new LinkedList<DispatchRecord>();
-							l.add(d);
-							tbl.put(m.getName(), l);
-						}
-					}
-					mOffset++;
+					int mOffset = slots.containsKey(m.getName()) ? slots.get(
+							m.getName()).getOffset() : slots.size();
+					slots.put(m.getName(), new DispatchRecord(ancestor, m,
+							mOffset));
 				}
 			}
+			tbl.put(c.getName(), slots);
 		}
 	}
 
 	/**
-	 * Get the dispatch candidates for the dispatch of the specified method name
+	 * Get the dispatch records of all the slots of the dispatch table of the
+	 * specified class in the slot order
 	 * 
-	 * @param mName The specified method
-	 * @return The corresponding dispatch records
+	 * @param cName The specified class
+	 * @return The dispatch records of the class
 	 */
-	Collection<DispatchRecord> getDispatchCandidates(AbstractSymbol mName)
+	Collection<DispatchRecord> getDispatchRecords(AbstractSymbol cName)
 	{
-		return tbl.get(mName);
+		return tbl.get(cName).values();
 	}
 
 	/**
 	 * Get the dispatch record for the specified method
 	 * 
-	 * @param c The specified class in which the method exists
+	 * @param cName The specified class in which the method exists
 	 * @param mName The specified name of the method
 	 * @return The sought dispatch method
 	 */
-	DispatchRecord getDispatchRecord(CNode c, AbstractSymbol mName)
+	DispatchRecord getDispatchRecord(AbstractSymbol cName, AbstractSymbol mName)
 	{
-		for (DispatchRecord d : tbl.get(mName))
-			if (d.getClassTag() == c.getClassTag())
-				return d;
-		return null;
+		return tbl.get(cName).get(mName);
 	}
 }
@@ -0,0 +1,345 @@
+package cool.cgen;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An element of the intermediate representation of the generated code.
+ * 
+ * The code generator builds these directly as it walks the typed AST: an
+ * instruction, a label, a directive or a comment. An instruction is in three
+ * address form. It has a destination register, up to two source registers and
+ * an immediate, or a base register and an offset if it is a load or a store,
+ * and a label if it is a branch or a jump or loads an address. The integer
+ * operands are kept as ints and the MIPS syntax is only produced when the
+ * representation is lowered.
+ */
+class Instruction
+{
+	enum Kind
+	{
+		INSTRUCTION, LABEL, DIRECTIVE, COMMENT
+	}
+
+	/** Runtime routines which do not return to the caller */
+	private final static Set<String> NON_RETURNING = new HashSet<String>(
+			Arrays.asList("_dispatch_abort", "_case_abort", "_case_abort2"));
+
+	private final Kind kind;
+
+	/** The operation of an instruction or of a directive */
+	final String op;
+
+	/** The register written by the instruction, if any */
+	final String dest;
+
+	/** The source registers, if any. The value stored by a store is src1 */
+	final String src1;
+	final String src2;
+
+	/** The base register of a load or a store */
+	final String base;
+
+	/** The immediate operand, or the integer argument of a directive */
+	final int imm;
+	private final boolean hasImm;
+
+	/** The offset, in bytes, of a load or a store from its base register */
+	final int offset;
+
+	/**
+	 * The target of a branch or a jump, the address loaded by an LA or the
+	 * label defined by a LABEL
+	 */
+	final String label;
+
+	/**
+	 * The text of a comment, null for a blank line, or the argument of a
+	 * directive which is not an integer
+	 */
+	final String text;
+
+	private Instruction(Kind kind, String op, String dest, String src1,
+			String src2, String base, int imm, boolean hasImm, int offset,
+			String label, String text)
+	{
+		this.kind = kind;
+		this.op = op;
+		this.dest = dest;
+		this.src1 = src1;
+		this.src2 = src2;
+		this.base = base;
+		this.imm = imm;
+		this.hasImm = hasImm;
+		this.offset = offset;
+		this.label = label;
+		this.text = text;
+	}
+
+	private static Instruction instruction(String op, String dest,
+			String src1, String src2, String label)
+	{
+		return new Instruction(Kind.INSTRUCTION, op, dest, src1, src2, null,
+				0, false, 0, label, null);
+	}
+
+	private static Instruction instruction(String op, String dest,
+			String src1, int imm, String label)
+	{
+		return new Instruction(Kind.INSTRUCTION, op, dest, src1, null, null,
+				imm, true, 0, label, null);
+	}
+
+	/** Creates an instruction of the form, op dest src1 src2 */
+	static Instruction rrr(String op, String dest, String src1, String src2)
+	{
+		return instruction(op, dest, src1, src2, null);
+	}
+
+	/** Creates an instruction of the form, op dest src1 imm */
+	static Instruction rri(String op, String dest, String src1, int imm)
+	{
+		return instruction(op, dest, src1, imm, null);
+	}
+
+	/** Creates an instruction of the form, op dest src1 */
+	static Instruction rr(String op, String dest, String src1)
+	{
+		return instruction(op, dest, src1, null, null);
+	}
+
+	/** Creates an instruction of the form, op dest imm */
+	static Instruction ri(String op, String dest, int imm)
+	{
+		return instruction(op, dest, null, imm, null);
+	}
+
+	/** Creates an instruction of the form, op dest label */
+	static Instruction rl(String op, String dest, String label)
+	{
+		return instruction(op, dest, null, null, label);
+	}
+
+	/** Creates a load, op dest offset(base) */
+	static Instruction load(String op, String dest, int offset, String base)
+	{
+		return new Instruction(Kind.INSTRUCTION, op, dest, null, null, base,
+				0, false, offset, null, null);
+	}
+
+	/** Creates a store, op src offset(base) */
+	static Instruction store(String op, String src, int offset, String base)
+	{
+		return new Instruction(Kind.INSTRUCTION, op, null, src, null, base,
+				0, false, offset, null, null);
+	}
+
+	/** Creates a jump through a register, op src */
+	static Instruction jumpRegister(String op, String src)
+	{
+		return instruction(op, null, src, null, null);
+	}
+
+	/** Creates a jump, or an unconditional branch, op label */
+	static Instruction jump(String op, String label)
+	{
+		return instruction(op, null, null, null, label);
+	}
+
+	/** Creates a conditional branch, op src1 [src2] label */
+	static Instruction branch(String op, String src1, String src2, String label)
+	{
+		return instruction(op, null, src1, src2, label);
+	}
+
+	/** Creates a conditional branch, op src1 imm label */
+	static Instruction branch(String op, String src1, int imm, String label)
+	{
+		return instruction(op, null, src1, imm, label);
+	}
+
+	/** Creates a definition of a label */
+	static Instruction label(String name)
+	{
+		return new Instruction(Kind.LABEL, null, null, null, null, null, 0,
+				false, 0, name, null);
+	}
+
+	/** Creates a directive, e.g., directive(".word", "Int_protObj") */
+	static Instruction directive(String op, String arg)
+	{
+		return new Instruction(Kind.DIRECTIVE, op, null, null, null, null, 0,
+				false, 0, null, arg);
+	}
+
+	/** Creates a directive with an integer argument, e.g., .align 2 */
+	static Instruction directive(String op, int arg)
+	{
+		return new Instruction(Kind.DIRECTIVE, op, null, null, null, null,
+				arg, true, 0, null, null);
+	}
+
+	/** Creates a comment. A null text stands for a blank line */
+	static Instruction comment(String text)
+	{
+		return new Instruction(Kind.COMMENT, null, null, null, null, null, 0,
+				false, 0, null, text);
+	}
+
+	boolean isInstruction()
+	{
+		return kind == Kind.INSTRUCTION;
+	}
+
+	boolean isLabel()
+	{
+		return kind == Kind.LABEL;
+	}
+
+	boolean isDirective()
+	{
+		return kind == Kind.DIRECTIVE;
+	}
+
+	/** Is this a load or a store? */
+	boolean isMemory()
+	{
+		return isInstruction() && base != null;
+	}
+
+	/** Returns the label defined by this line */
+	String getLabel()
+	{
+		return label;
+	}
+
+	/** Is this a branch, conditional or not? */
+	boolean isBranch()
+	{
+		return isInstruction() && op.charAt(0) == 'b' && label != null;
+	}
+
+	/** Is the instruction after this one never executed after it? */
+	boolean isUnconditional()
+	{
+		return isInstruction()
+				&& (op.equals(CgenSupport.BRANCH) || op.equals(CgenSupport.JR)
+						|| op.equals(CgenSupport.JAL)
+						&& NON_RETURNING.contains(label));
+	}
+
+	/** Does this instruction end a basic block? */
+	boolean endsBlock()
+	{
+		return isBranch() || isUnconditional();
+	}
+
+	/** Returns the label to which this branch jumps */
+	String getTarget()
+	{
+		return label;
+	}
+
+	/** Returns this branch retargeted to the specified label */
+	Instruction withTarget(String target)
+	{
+		return new Instruction(kind, op, dest, src1, src2, base, imm, hasImm,
+				offset, target, text);
+	}
+
+	boolean isMove()
+	{
+		return isInstruction() && op.equals(CgenSupport.MOVE);
+	}
+
+	/** Is this 'addiu $sp $sp n'? */
+	boolean isSpAdjust(int n)
+	{
+		return isInstruction() && op.equals(CgenSupport.ADDIU)
+				&& CgenSupport.SP.equals(dest) && CgenSupport.SP.equals(src1)
+				&& hasImm && imm == n;
+	}
+
+	/** Is this 'op R offset($sp)'? */
+	boolean isSpAccess(String op, int offset)
+	{
+		return isMemory() && this.op.equals(op)
+				&& base.equals(CgenSupport.SP) && this.offset == offset;
+	}
+
+	/**
+	 * Lowers this element to a line of MIPS assembly. The integer operands are
+	 * printed with AsmWriter.print(int), which writes their digits without
+	 * building strings
+	 */
+	void lower(AsmWriter s)
+	{
+		switch (kind)
+		{
+		case LABEL:
+			s.print(label);
+			s.println(':');
+			return;
+		case COMMENT:
+			if (text != null)
+			{
+				s.print("# ");
+				s.print(text);
+			}
+			s.println();
+			return;
+		default:
+			break;
+		}
+
+		s.print('\t');
+		s.print(op);
+		if (isMemory())
+		{
+			s.print('\t');
+			s.print(dest != null ? dest : src1);
+			s.print(' ');
+			s.print(offset);
+			s.print('(');
+			s.print(base);
+			s.println(')');
+			return;
+		}
+
+		char sep = print(s, '\t', dest);
+		sep = print(s, sep, src1);
+		sep = print(s, sep, src2);
+		if (hasImm)
+		{
+			s.print(sep);
+			s.print(imm);
+			sep = ' ';
+		}
+		if (label != null)
+		{
+			s.print(sep);
+			s.print(label);
+		}
+		else if (text != null)
+		{
+			s.print(sep);
+			s.print(text);
+		}
+		s.println();
+	}
+
+	/**
+	 * Prints an operand, if any, after the separator
+	 * 
+	 * @return The separator of the next operand
+	 */
+	private static char print(AsmWriter s, char sep, String operand)
+	{
+		if (operand == null)
+			return sep;
+		s.print(sep);
+		s.print(operand);
+		return ' ';
+	}
+}
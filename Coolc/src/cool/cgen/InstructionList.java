@@ -0,0 +1,84 @@
+package cool.cgen;
+
+import cool.common.Flags;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The linear intermediate representation of the generated code.
+ * 
+ * The code generator appends the instructions, labels, directives and
+ * comments of the program to this list, through the emit methods of
+ * CgenSupport, instead of printing the assembly code. Under -O the list is
+ * optimized by the CodeOptimizer. It is then lowered to MIPS assembly, in
+ * one step, by lower().
+ * 
+ * In the release mode(Flags.cgen_release) the comments and the blank lines
+ * are not added, so that the release code contains only the instructions,
+ * directives and labels.
+ */
+public class InstructionList
+{
+	/** Drop comments and blank lines? */
+	private final boolean release = Flags.cgen_release;
+
+	private List<Instruction> code = new ArrayList<Instruction>();
+
+	void add(Instruction ins)
+	{
+		code.add(ins);
+	}
+
+	/** Returns the elements of the list, in order */
+	List<Instruction> getInstructions()
+	{
+		return code;
+	}
+
+	/** Replaces the elements of the list */
+	void setInstructions(List<Instruction> code)
+	{
+		this.code = code;
+	}
+
+	/**
+	 * Adds a comment line
+	 * 
+	 * @param text the text of the comment, without the '#'
+	 */
+	public void comment(String text)
+	{
+		if (!release)
+			code.add(Instruction.comment(text));
+	}
+
+	/**
+	 * Adds a blank line, which separates the code of the constructs
+	 */
+	public void blank()
+	{
+		if (!release)
+			code.add(Instruction.comment(null));
+	}
+
+	/**
+	 * Appends the elements of the specified list, e.g., the code of a class
+	 * generated separately
+	 */
+	public void addAll(InstructionList l)
+	{
+		code.addAll(l.code);
+	}
+
+	/**
+	 * Lowers the list to MIPS assembly
+	 * 
+	 * @param s the writer to which the assembly code is written
+	 */
+	public void lower(AsmWriter s)
+	{
+		for (Instruction ins : code)
+			ins.lower(s);
+	}
+}
@@ -23,8 +23,6 @@ package cool.cgen;
 
 import cool.common.AbstractSymbol;
 
-import java.io.PrintStream;
-
 /**
  * String table entry for integer constants
  * 
@@ -48,31 +46,28 @@ public class IntSymbol extends AbstractSymbol
 	 * 5.
 	 * 
 	 * @param intclasstag the class tag for string object
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * 
 	 * */
-	void codeDef(int intclasstag, PrintStream s)
+	void codeDef(int intclasstag, InstructionList s)
 	{
 		// Add -1 eye catcher
-		s.println(CgenSupport.WORD + "-1");
-		codeRef(s);
-		s.print(CgenSupport.LABEL); // label
-		s.println(CgenSupport.WORD + intclasstag); // tag
-		s.println(CgenSupport.WORD
-				+ (CgenSupport.DEFAULT_OBJFIELDS + CgenSupport.INT_SLOTS)); // size
-		s.println(CgenSupport.WORD + "Int" + CgenSupport.DISPTAB_SUFFIX); // dispatch
-																			// table
-		s.println(CgenSupport.WORD + str); // integer value
+		CgenSupport.emitWord(-1, s);
+		CgenSupport.emitLabelDef(getRef(), s); // label
+		CgenSupport.emitWord(intclasstag, s); // tag
+		CgenSupport.emitWord(CgenSupport.DEFAULT_OBJFIELDS
+				+ CgenSupport.INT_SLOTS, s); // size
+		// dispatch table
+		CgenSupport.emitWord("Int" + CgenSupport.DISPTAB_SUFFIX, s);
+		CgenSupport.emitWord(str, s); // integer value
 	}
 
 	/**
-	 * Emits a reference to this integer constant.
-	 * 
-	 * @param s the output stream
+	 * Returns a reference to this integer constant.
 	 * */
-	void codeRef(PrintStream s)
+	String getRef()
 	{
-		s.print(CgenSupport.INTCONST_PREFIX + index);
+		return CgenSupport.INTCONST_PREFIX + index;
 	}
 
 	/** Returns a copy of this symbol */
@@ -1,6 +1,4 @@
 package cool.cgen;
-import java.io.PrintStream;
-
 import cool.common.AbstractSymbol;
 import cool.common.AbstractTable;
 
@@ -20,11 +18,11 @@ public class IntTable extends AbstractTable
 	 * Generates code for all int constants in the int table.
 	 * 
 	 * @param intclasstag the class tag for Int
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	void codeStringTable(int intclasstag, PrintStream s)
+	void codeStringTable(int intclasstag, InstructionList s)
 	{
-		for (AbstractSymbol sym: tbl.values())
+		for (AbstractSymbol sym: tbl)
 			((IntSymbol)sym).codeDef(intclasstag, s);
 	}
 }
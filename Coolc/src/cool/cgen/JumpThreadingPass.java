@@ -0,0 +1,60 @@
+package cool.cgen;
+
+/**
+ * Retargets the branches to blocks which consist of an unconditional branch
+ * to the target of the latter.
+ */
+class JumpThreadingPass extends OptimizationPass
+{
+	/** Limit on the number of jumps followed while retargeting a branch */
+	private final static int MAX_JUMP_CHAIN = 16;
+
+	JumpThreadingPass()
+	{
+		super("jump to jump");
+	}
+
+	@Override
+	boolean run(ControlFlowGraph cfg)
+	{
+		boolean changed = false;
+		for (BasicBlock b : cfg.getBlocks())
+		{
+			Instruction last = b.getLast();
+			if (last == null || !last.isBranch())
+				continue;
+			String target = last.getTarget();
+			for (int n = 0; n < MAX_JUMP_CHAIN; n++)
+			{
+				String next = getJump(cfg, target);
+				if (next == null || next.equals(target))
+					break;
+				target = next;
+			}
+			if (!target.equals(last.getTarget()))
+			{
+				b.replace(last, last.withTarget(target));
+				hit();
+				changed = true;
+			}
+		}
+		if (changed)
+			cfg.computeEdges();
+		return changed;
+	}
+
+	/**
+	 * Returns the target of the unconditional branch at the label, or null if
+	 * there is none
+	 */
+	private String getJump(ControlFlowGraph cfg, String label)
+	{
+		BasicBlock b = cfg.getBlock(label);
+		if (b == null)
+			return null;
+		Instruction first = b.getFirst();
+		return first != null && first.isBranch()
+				&& first.op.equals(CgenSupport.BRANCH) ? first.getTarget()
+				: null;
+	}
+}
@@ -0,0 +1,99 @@
+package cool.cgen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An optimization which rewrites the instructions within each basic block in
+ * a single pass over them. The pass sees the instructions of the block before
+ * the current one, ignoring the comments in between, as rewritten so far.
+ */
+abstract class LocalPass extends OptimizationPass
+{
+	protected LocalPass(String description)
+	{
+		super(description);
+	}
+
+	@Override
+	boolean run(ControlFlowGraph cfg)
+	{
+		boolean changed = false;
+		for (BasicBlock b : cfg.getBlocks())
+		{
+			Window w = new Window();
+			for (Instruction ins : b.getLines())
+				if (ins.isInstruction() && rewrite(w, ins))
+					changed = true;
+				else
+					w.add(ins);
+			b.setLines(w.getLines());
+		}
+		if (changed)
+			cfg.computeEdges();
+		return changed;
+	}
+
+	/**
+	 * Rewrites the instruction, and the ones before it in the window, if the
+	 * pass applies to them
+	 * 
+	 * @return Was the instruction rewritten? If not, it is added to the window
+	 */
+	abstract boolean rewrite(Window w, Instruction ins);
+
+	/**
+	 * The rewritten lines of a block. Deleted lines are set to null
+	 */
+	static class Window
+	{
+		private final List<Instruction> code = new ArrayList<Instruction>();
+
+		/** The instructions in the code, and their positions */
+		private final List<Instruction> instrs = new ArrayList<Instruction>();
+		private final List<Integer> positions = new ArrayList<Integer>();
+
+		void add(Instruction ins)
+		{
+			if (ins.isInstruction())
+			{
+				instrs.add(ins);
+				positions.add(code.size());
+			}
+			code.add(ins);
+		}
+
+		/** Returns the number of instructions in the window */
+		int size()
+		{
+			return instrs.size();
+		}
+
+		/** Returns the instruction n places before the last one */
+		Instruction last(int n)
+		{
+			return instrs.get(instrs.size() - 1 - n);
+		}
+
+		/** Removes the last n instructions */
+		void remove(int n)
+		{
+			for (int i = 0; i < n; i++)
+			{
+				int last = instrs.size() - 1;
+				code.set(positions.get(last), null);
+				instrs.remove(last);
+				positions.remove(last);
+			}
+		}
+
+		List<Instruction> getLines()
+		{
+			List<Instruction> l = new ArrayList<Instruction>(code.size());
+			for (Instruction ins : code)
+				if (ins != null)
+					l.add(ins);
+			return l;
+		}
+	}
+}
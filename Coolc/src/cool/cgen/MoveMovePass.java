@@ -0,0 +1,23 @@
+package cool.cgen;
+
+/**
+ * Drops the second of 'move A B' and 'move B A'.
+ */
+class MoveMovePass extends LocalPass
+{
+	MoveMovePass()
+	{
+		super("move followed by reverse move");
+	}
+
+	@Override
+	boolean rewrite(Window w, Instruction ins)
+	{
+		if (!ins.isMove() || w.size() < 1 || !w.last(0).isMove()
+				|| !w.last(0).dest.equals(ins.src1)
+				|| !w.last(0).src1.equals(ins.dest))
+			return false;
+		hit();
+		return true;
+	}
+}
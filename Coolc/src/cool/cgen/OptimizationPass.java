@@ -0,0 +1,42 @@
+package cool.cgen;
+
+/**
+ * An optimization over the control flow graph of a region of the generated
+ * code. The number of rewrites made by the pass is counted.
+ */
+public abstract class OptimizationPass
+{
+	private final String description;
+
+	private int hits = 0;
+
+	protected OptimizationPass(String description)
+	{
+		this.description = description;
+	}
+
+	public String getDescription()
+	{
+		return description;
+	}
+
+	/**
+	 * Returns the number of rewrites made by the pass
+	 */
+	public int getHits()
+	{
+		return hits;
+	}
+
+	protected void hit()
+	{
+		hits++;
+	}
+
+	/**
+	 * Runs the pass over the control flow graph
+	 * 
+	 * @return Was the code changed?
+	 */
+	abstract boolean run(ControlFlowGraph cfg);
+}
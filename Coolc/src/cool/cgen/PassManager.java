@@ -0,0 +1,59 @@
+package cool.cgen;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs a sequence of optimization passes over the control flow graph of each
+ * region of the generated code. As a pass may expose opportunities for the
+ * ones before it, e.g., a push followed by a pop becomes a move which may then
+ * be dropped, the sequence is run until no pass changes the code.
+ */
+public class PassManager
+{
+	/** Limit on the number of times the passes are run over a region */
+	private final static int MAX_ROUNDS = 8;
+
+	private final List<OptimizationPass> passes = new ArrayList<OptimizationPass>();
+
+	/**
+	 * Creates a pass manager which runs the default passes
+	 */
+	public PassManager()
+	{
+		passes.add(new UnreachableCodePass());
+		passes.add(new JumpThreadingPass());
+		passes.add(new BranchToNextPass());
+		passes.add(new PushPopPass());
+		passes.add(new MoveMovePass());
+		passes.add(new SelfMovePass());
+	}
+
+	/**
+	 * Creates a pass manager which runs the specified passes, in order
+	 */
+	public PassManager(List<OptimizationPass> passes)
+	{
+		this.passes.addAll(passes);
+	}
+
+	public List<OptimizationPass> getPasses()
+	{
+		return Collections.unmodifiableList(passes);
+	}
+
+	/**
+	 * Runs the passes over the control flow graph
+	 */
+	void run(ControlFlowGraph cfg)
+	{
+		boolean changed = true;
+		for (int n = 0; changed && n < MAX_ROUNDS; n++)
+		{
+			changed = false;
+			for (OptimizationPass p : passes)
+				changed |= p.run(cfg);
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package cool.cgen;
+
+/**
+ * Replaces a push immediately followed by a pop with a move, i.e.,
+ * 'sw R 0($sp); addiu $sp $sp -4; lw R2 4($sp); addiu $sp $sp 4' with
+ * 'move R2 R'.
+ */
+class PushPopPass extends LocalPass
+{
+	PushPopPass()
+	{
+		super("push followed by pop");
+	}
+
+	@Override
+	boolean rewrite(Window w, Instruction ins)
+	{
+		if (!ins.isSpAdjust(4) || w.size() < 3
+				|| !w.last(0).isSpAccess(CgenSupport.LW, 4)
+				|| !w.last(1).isSpAdjust(-4)
+				|| !w.last(2).isSpAccess(CgenSupport.SW, 0))
+			return false;
+		String dest = w.last(0).dest;
+		String src = w.last(2).src1;
+		w.remove(3);
+		w.add(Instruction.rr(CgenSupport.MOVE, dest, src));
+		hit();
+		return true;
+	}
+}
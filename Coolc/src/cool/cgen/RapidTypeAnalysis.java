@@ -0,0 +1,192 @@
+package cool.cgen;
+
+import cool.common.AbstractSymbol;
+import cool.common.TreeConstants;
+import cool.common.Utilities;
+
+import cool.parser.TreeNode;
+import cool.parser.attr;
+import cool.parser.method;
+
+import cool.semant.CNode;
+import cool.semant.ITree;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Whole program reachability analysis of the methods and the classes, by rapid
+ * type analysis.
+ * 
+ * Starting from Main.main, the bodies of the reachable methods are walked for
+ * the classes they instantiate and the methods they invoke. A dynamic dispatch
+ * of a method on an object of a static type T reaches the definition of the
+ * method in each instantiated class which conforms to T, including the
+ * classes instantiated later in the analysis. A static dispatch reaches the
+ * definition in the specified class. An instantiated class runs the attribute
+ * initializers of itself and of its ancestors, which are walked too.
+ * 
+ * The classes whose objects the runtime creates, i.e., Main, Int, String and
+ * Bool, are instantiated from the start.
+ * 
+ * A class is live if it or one of its subclasses is instantiated. The others
+ * need no prototype object, dispatch table or initializer. The methods which
+ * are not reachable need not be coded. Their slots in the dispatch tables are
+ * kept so that the offsets of the other methods do not change.
+ */
+public class RapidTypeAnalysis
+{
+	private final ITree iTree;
+	private final DispatchTable dTab;
+
+	private final Set<AbstractSymbol> instantiated = new HashSet<AbstractSymbol>();
+	private final Set<method> reachable = new HashSet<method>();
+
+	/** The static types of the invoking objects of each method dispatched */
+	private final Map<AbstractSymbol, Set<AbstractSymbol>> dispatches = new HashMap<AbstractSymbol, Set<AbstractSymbol>>();
+
+	/** The classes whose attribute initializers have been walked */
+	private final Set<CNode> initialized = new HashSet<CNode>();
+
+	/** The methods and the instantiated classes yet to be walked */
+	private final Queue<DispatchRecord> methods = new LinkedList<DispatchRecord>();
+	private final Queue<CNode> classes = new LinkedList<CNode>();
+
+	RapidTypeAnalysis(ITree iTree, DispatchTable dTab)
+	{
+		this.iTree = iTree;
+		this.dTab = dTab;
+
+		instantiate(TreeConstants.Main);
+		instantiate(TreeConstants.Int);
+		instantiate(TreeConstants.Str);
+		instantiate(TreeConstants.Bool);
+		staticDispatch(TreeConstants.Main, TreeConstants.main_meth);
+
+		while (!methods.isEmpty() || !classes.isEmpty())
+		{
+			if (!methods.isEmpty())
+			{
+				DispatchRecord r = methods.remove();
+				r.getMethod().analyze(r.getClass_(), this);
+				continue;
+			}
+			for (CNode a : classes.remove().getAncestors(
+					Utilities.oldestFirst))
+				if (initialized.add(a))
+					for (TreeNode t : a.getFeatures().getElements())
+						if (t instanceof attr)
+							((attr) t).getInit().analyze(a, this);
+		}
+	}
+
+	/**
+	 * Records that objects of the specified class are created
+	 */
+	public void instantiate(AbstractSymbol cName)
+	{
+		if (!instantiated.add(cName))
+			return;
+		CNode c = iTree.toINode(cName);
+		classes.add(c);
+		for (Map.Entry<AbstractSymbol, Set<AbstractSymbol>> e : dispatches
+				.entrySet())
+			for (AbstractSymbol type : e.getValue())
+				if (conforms(c, type))
+				{
+					reach(dTab.getDispatchRecord(cName, e.getKey()));
+					break;
+				}
+	}
+
+	/**
+	 * Records a dynamic dispatch of the specified method on an object of the
+	 * specified static type
+	 */
+	public void dispatch(AbstractSymbol type, AbstractSymbol mName)
+	{
+		Set<AbstractSymbol> types = dispatches.get(mName);
+		if (types == null)
+		{
+			types = new HashSet<AbstractSymbol>();
+			dispatches.put(mName, types);
+		}
+		if (!types.add(type))
+			return;
+		for (CNode sub : iTree.toINode(type).getSubtypes())
+			if (instantiated.contains(sub.getName()))
+				reach(dTab.getDispatchRecord(sub.getName(), mName));
+	}
+
+	/**
+	 * Records a static dispatch of the specified method of the specified class
+	 */
+	public void staticDispatch(AbstractSymbol cName, AbstractSymbol mName)
+	{
+		reach(dTab.getDispatchRecord(cName, mName));
+	}
+
+	private void reach(DispatchRecord r)
+	{
+		if (reachable.add(r.getMethod()))
+			methods.add(r);
+	}
+
+	private boolean conforms(CNode c, AbstractSymbol type)
+	{
+		CNode t = iTree.toINode(type);
+		return c.getClassTag() >= t.getClassTag()
+				&& c.getClassTag() <= t.getLastSubtypeClassTag();
+	}
+
+	/**
+	 * Is the method reachable from Main.main?
+	 */
+	public boolean isReachable(method m)
+	{
+		return reachable.contains(m);
+	}
+
+	/**
+	 * Are objects of the specified class, or of one of its subclasses,
+	 * created?
+	 */
+	public boolean isLive(AbstractSymbol cName)
+	{
+		for (CNode sub : iTree.toINode(cName).getSubtypes())
+			if (instantiated.contains(sub.getName()))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns the number of methods of the program, those of the basic
+	 * classes excluded, which are not reachable
+	 */
+	public int getUnreachableMethodCount()
+	{
+		int n = 0;
+		for (CNode c : iTree.getClasses())
+			if (!c.basic())
+				for (TreeNode t : c.getFeatures().getElements())
+					if (t instanceof method && !isReachable((method) t))
+						n++;
+		return n;
+	}
+
+	/**
+	 * Returns the number of classes of the program which are not live
+	 */
+	public int getDeadClassCount()
+	{
+		int n = 0;
+		for (CNode c : iTree.getClasses())
+			if (!isLive(c.getName()))
+				n++;
+		return n;
+	}
+}
@@ -0,0 +1,98 @@
+package cool.cgen;
+
+import cool.common.Utilities;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Allocates the callee saved registers $s1-$s6 to the local variables and the
+ * temporaries of a method.
+ * 
+ * The registers are allocated and freed in a stack discipline, following the
+ * nesting of the scopes of the variables and of the lifetimes of the
+ * temporaries. A method saves on entry, and may use, only as many registers
+ * as its body demands. A variable or temporary for which no register is left
+ * is kept in the stack as usual.
+ * 
+ * A temporary held in a register saves a single instruction over one kept in
+ * the stack, which does not pay for the saving of the register on every call
+ * of the method. Temporaries are thus allocated registers only within loops.
+ * 
+ * The runtime preserves these registers and the garbage collector updates the
+ * object references held in them. Thus they need not be spilled around calls.
+ * $s0 and $s7 are reserved for self and the runtime respectively.
+ */
+class RegisterAllocator
+{
+	/** The registers, in the order in which they are allocated */
+	private final static String[] REGISTERS = { "$s1", "$s2", "$s3", "$s4",
+			"$s5", "$s6" };
+
+	/** Number of registers which the current method may use */
+	private int limit = 0;
+
+	/** Number of registers in use */
+	private int nUsed = 0;
+
+	/** Number of loops enclosing the code being generated */
+	private int loopDepth = 0;
+
+	/**
+	 * Starts the allocation for a method
+	 * 
+	 * @param demand The number of registers demanded by the method
+	 * @return The registers which the method must save
+	 */
+	List<String> enterMethod(int demand)
+	{
+		limit = Math.min(demand, REGISTERS.length);
+		nUsed = 0;
+		loopDepth = 0;
+		return Arrays.asList(REGISTERS).subList(0, limit);
+	}
+
+	/**
+	 * Returns a free register, or null if there are none
+	 */
+	String allocate()
+	{
+		return nUsed < limit ? REGISTERS[nUsed++] : null;
+	}
+
+	/**
+	 * Returns a free register for a temporary, or null if there are none or if
+	 * the code being generated is not within a loop
+	 */
+	String allocateTemporary()
+	{
+		return isInLoop() ? allocate() : null;
+	}
+
+	void enterLoop()
+	{
+		loopDepth++;
+	}
+
+	void exitLoop()
+	{
+		loopDepth--;
+	}
+
+	boolean isInLoop()
+	{
+		return loopDepth > 0;
+	}
+
+	/**
+	 * Frees the register allocated last
+	 * 
+	 * @param reg The register
+	 */
+	void free(String reg)
+	{
+		if (!reg.equals(REGISTERS[--nUsed]))
+			Utilities.fatalError("Internal Error : Register " + reg
+					+ " is not the last one allocated");
+	}
+}
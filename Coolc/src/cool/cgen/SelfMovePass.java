@@ -0,0 +1,21 @@
+package cool.cgen;
+
+/**
+ * Drops 'move A A'.
+ */
+class SelfMovePass extends LocalPass
+{
+	SelfMovePass()
+	{
+		super("move to itself");
+	}
+
+	@Override
+	boolean rewrite(Window w, Instruction ins)
+	{
+		if (!ins.isMove() || !ins.dest.equals(ins.src1))
+			return false;
+		hit();
+		return true;
+	}
+}
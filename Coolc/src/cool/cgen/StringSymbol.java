@@ -24,8 +24,6 @@ package cool.cgen;
 import cool.common.AbstractSymbol;
 import cool.common.AbstractTable;
 
-import java.io.PrintStream;
-
 /** String table entry for string constants. */
 public class StringSymbol extends AbstractSymbol
 {
@@ -45,39 +43,34 @@ public class StringSymbol extends AbstractSymbol
 	 * 5.
 	 * 
 	 * @param stringclasstag the class tag for string object
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * 
 	 * */
-	public void codeDef(int stringclasstag, PrintStream s)
+	public void codeDef(int stringclasstag, InstructionList s)
 	{
 		IntSymbol lensym = (IntSymbol) AbstractTable.inttable.addInt(str
 				.length());
 
 		// Add -1 eye catcher
-		s.println(CgenSupport.WORD + "-1");
-		codeRef(s);
-		s.print(CgenSupport.LABEL); // label
-		s.println(CgenSupport.WORD + stringclasstag); // tag
-		s.println(CgenSupport.WORD
-				+ (CgenSupport.DEFAULT_OBJFIELDS + CgenSupport.STRING_SLOTS + (str
-						.length() + 4) / 4)); // object size
-		s.print(CgenSupport.WORD);
-		s.println("String" + CgenSupport.DISPTAB_SUFFIX); // dispatch table
-		s.print(CgenSupport.WORD);
-		lensym.codeRef(s);
-		s.println(""); // length
+		CgenSupport.emitWord(-1, s);
+		CgenSupport.emitLabelDef(getRef(), s); // label
+		CgenSupport.emitWord(stringclasstag, s); // tag
+		// object size
+		CgenSupport.emitWord(CgenSupport.DEFAULT_OBJFIELDS
+				+ CgenSupport.STRING_SLOTS + (str.length() + 4) / 4, s);
+		// dispatch table
+		CgenSupport.emitWord("String" + CgenSupport.DISPTAB_SUFFIX, s);
+		CgenSupport.emitWord(lensym.getRef(), s); // length
 		CgenSupport.emitStringConstant(str, s); // ascii string
-		s.print(CgenSupport.ALIGN); // align to word
+		CgenSupport.emitDirective(CgenSupport.ALIGN, 2, s); // align to word
 	}
 
 	/**
-	 * Emits a reference to this string constant.
-	 * 
-	 * @param s the output stream
+	 * Returns a reference to this string constant.
 	 * */
-	public void codeRef(PrintStream s)
+	public String getRef()
 	{
-		s.print(CgenSupport.STRCONST_PREFIX + index);
+		return CgenSupport.STRCONST_PREFIX + index;
 	}
 
 	/** Returns a copy of this symbol */
@@ -1,6 +1,4 @@
 package cool.cgen;
-import java.io.PrintStream;
-
 import cool.common.AbstractSymbol;
 import cool.common.AbstractTable;
 
@@ -16,15 +14,24 @@ public class StringTable extends AbstractTable
 		return new StringSymbol(s, len, index);
 	}
 
+	/**
+	 * Adds the lengths of all string constants to the int table
+	 * */
+	public void addLengths()
+	{
+		for (AbstractSymbol sym : tbl)
+			AbstractTable.inttable.addInt(sym.toString().length());
+	}
+
 	/**
 	 * Generates code for all string constants in the string table.
 	 * 
 	 * @param stringclasstag the class tag for String
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public void codeStringTable(int stringclasstag, PrintStream s)
+	public void codeStringTable(int stringclasstag, InstructionList s)
 	{
-		for(AbstractSymbol sym : tbl.values())
+		for(AbstractSymbol sym : tbl)
 			((StringSymbol)sym).codeDef(stringclasstag, s);
 	}
 }
@@ -0,0 +1,44 @@
+package cool.cgen;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes the blocks which cannot be reached from the entries of the region,
+ * e.g., the code after a call to _dispatch_abort. The hits are the removed
+ * blocks.
+ */
+class UnreachableCodePass extends OptimizationPass
+{
+	UnreachableCodePass()
+	{
+		super("unreachable block");
+	}
+
+	@Override
+	boolean run(ControlFlowGraph cfg)
+	{
+		Set<BasicBlock> reached = new HashSet<BasicBlock>();
+		List<BasicBlock> work = cfg.getEntries();
+		while (!work.isEmpty())
+		{
+			BasicBlock b = work.remove(work.size() - 1);
+			if (reached.add(b))
+				work.addAll(b.getSuccessors());
+		}
+
+		List<BasicBlock> dead = new ArrayList<BasicBlock>();
+		for (BasicBlock b : cfg.getBlocks())
+			if (!reached.contains(b))
+			{
+				dead.add(b);
+				hit();
+			}
+		if (dead.isEmpty())
+			return false;
+		cfg.removeAll(dead);
+		return true;
+	}
+}
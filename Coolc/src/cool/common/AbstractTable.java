@@ -1,6 +1,8 @@
 package cool.common;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 import cool.cgen.IdTable;
 import cool.cgen.IntTable;
@@ -23,11 +25,15 @@ import cool.cgen.StringTable;
  * 
  * A string table is a lookup table that maintains a single copy of each string.
  * The Cool string table class provides methods for inserting and querying
- * string tables in a variety of ways. While production compilers use hashed
- * data structures to implement string tables, the Cool string tables are
- * implemented as vectors. The components of Cool string tables are of type <a
- * href="AbstractSymbol.html"> AbstractSymbol</a>). Each AbstractSymbol stores a
- * string, and an integer index unique to the string.
+ * string tables in a variety of ways. The Cool string tables are hashed on the
+ * characters of the strings, so that a string can be interned directly from a
+ * slice of a character array or sequence, e.g., of the buffer of the lexer,
+ * with a single probe and without creating a temporary string. A string is
+ * only created when a new symbol is added. The tables are safe for use by
+ * several threads, e.g., by the lexers of sources scanned in parallel. The
+ * components of Cool string tables are of type <a
+ * href="AbstractSymbol.html"> AbstractSymbol</a>). Each AbstractSymbol stores
+ * a string, and an integer index unique to the string.
  * 
  * <p>
  * 
@@ -73,14 +79,170 @@ public abstract class AbstractTable
 	private static int MAXSIZE = 1000000;
 
 	/** 
-	 * A linked hash map is used as an iteration of all table entries is
-	 * required during the code generation for integer and string constants
+	 * The symbols in the order of their indices. An iteration of all table
+	 * entries is required during the code generation for integer and string
+	 * constants. A symbol is given its index, and added, under the lock of
+	 * the list
 	 * */
-	protected Map<String, AbstractSymbol> tbl = new LinkedHashMap<String, AbstractSymbol>();
+	protected final List<AbstractSymbol> tbl = new ArrayList<AbstractSymbol>();
+
+	/** The number of stripes of the hash table is 1 << STRIPE_BITS */
+	private static final int STRIPE_BITS = 4;
+
+	/**
+	 * The hash table of the symbols, split into stripes by the hash codes of
+	 * the strings. Each stripe is guarded by its own lock, so that the
+	 * lexers of several sources can intern strings in parallel
+	 */
+	private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+	{
+		for (int i = 0; i < stripes.length; i++)
+			stripes[i] = new Stripe();
+	}
+
+	/**
+	 * A stripe of the hash table, open addressed with linear probing. Its
+	 * length is a power of two and it is kept at most half full
+	 */
+	private static class Stripe
+	{
+		private AbstractSymbol[] slots = new AbstractSymbol[32];
+		private int size = 0;
+
+		/** Returns the slot at which to start probing for a hash code */
+		private int slot(int h)
+		{
+			return (spread(h) >>> STRIPE_BITS) & (slots.length - 1);
+		}
+
+		/**
+		 * Returns the slot of the symbol of the specified slice of a
+		 * character array, or the empty slot at which it is to be added
+		 */
+		int find(char[] buf, int offset, int len, int h)
+		{
+			int i = slot(h);
+			for (; slots[i] != null; i = (i + 1) & (slots.length - 1))
+			{
+				String str = slots[i].str;
+				if (str.length() != len || str.hashCode() != h)
+					continue;
+				int j = 0;
+				while (j < len && str.charAt(j) == buf[offset + j])
+					j++;
+				if (j == len)
+					break;
+			}
+			return i;
+		}
+
+		/**
+		 * Returns the slot of the symbol of the specified prefix of a
+		 * character sequence, or the empty slot at which it is to be added
+		 */
+		int find(CharSequence s, int len, int h)
+		{
+			int i = slot(h);
+			for (; slots[i] != null; i = (i + 1) & (slots.length - 1))
+			{
+				String str = slots[i].str;
+				if (str.length() != len || str.hashCode() != h)
+					continue;
+				int j = 0;
+				while (j < len && str.charAt(j) == s.charAt(j))
+					j++;
+				if (j == len)
+					break;
+			}
+			return i;
+		}
+
+		AbstractSymbol get(int i)
+		{
+			return slots[i];
+		}
+
+		/** Puts a symbol in the specified empty slot */
+		void put(int i, AbstractSymbol sym)
+		{
+			slots[i] = sym;
+			if (2 * ++size > slots.length)
+				grow();
+		}
+
+		/** Doubles the stripe */
+		private void grow()
+		{
+			AbstractSymbol[] old = slots;
+			slots = new AbstractSymbol[2 * old.length];
+			for (AbstractSymbol sym : old)
+				if (sym != null)
+				{
+					int i = slot(sym.str.hashCode());
+					while (slots[i] != null)
+						i = (i + 1) & (slots.length - 1);
+					slots[i] = sym;
+				}
+		}
+	}
 
 	/** Creates a new symbol of the appropriate type */
 	protected abstract AbstractSymbol getNewSymbol(String s, int len, int index);
 
+	/**
+	 * Returns the hash code of a slice of a character array, which is that of
+	 * the string of its characters
+	 */
+	private static int hash(char[] buf, int offset, int len)
+	{
+		int h = 0;
+		for (int i = offset; i < offset + len; i++)
+			h = 31 * h + buf[i];
+		return h;
+	}
+
+	/**
+	 * Returns the hash code of a prefix of a character sequence, which is
+	 * that of the string of its characters
+	 */
+	private static int hash(CharSequence s, int len)
+	{
+		if (s instanceof String && s.length() == len)
+			return s.hashCode();
+		int h = 0;
+		for (int i = 0; i < len; i++)
+			h = 31 * h + s.charAt(i);
+		return h;
+	}
+
+	/** Mixes the high bits of a hash code into the low ones */
+	private static int spread(int h)
+	{
+		return h ^ (h >>> 16);
+	}
+
+	/** Returns the stripe of the hash table for a hash code */
+	private Stripe stripe(int h)
+	{
+		return stripes[spread(h) & (stripes.length - 1)];
+	}
+
+	/**
+	 * Adds a new symbol for the specified string at the specified empty slot
+	 * of a stripe, whose lock is held
+	 */
+	private AbstractSymbol add(Stripe stripe, int i, String s, int len)
+	{
+		AbstractSymbol sym;
+		synchronized (tbl)
+		{
+			sym = getNewSymbol(s, len, tbl.size());
+			tbl.add(sym);
+		}
+		stripe.put(i, sym);
+		return sym;
+	}
+
 	/**
 	 * Adds prefix of the specified length to this string table
 	 * 
@@ -91,13 +253,58 @@ public abstract class AbstractTable
 	AbstractSymbol addString(String s, int maxchars)
 	{
 		int len = Math.min(s.length(), maxchars);
-		
-		if (tbl.containsKey(s.substring(0, len)))
-			return tbl.get(s.substring(0, len));
-		
-		AbstractSymbol sym = getNewSymbol(s, len, tbl.size());
-		tbl.put(s.substring(0, len), sym);
-		return sym;
+		int h = hash(s, len);
+		Stripe stripe = stripe(h);
+		synchronized (stripe)
+		{
+			int i = stripe.find(s, len, h);
+			AbstractSymbol sym = stripe.get(i);
+			return sym != null ? sym : add(stripe, i, s, len);
+		}
+	}
+
+	/**
+	 * Adds the characters of the specified slice of a character array to this
+	 * string table. No string is created if the characters are in the table
+	 * already
+	 * 
+	 * @param buf the characters
+	 * @param offset the start of the slice
+	 * @param len the length of the slice
+	 * @return the symbol for the characters
+	 * */
+	public AbstractSymbol addString(char[] buf, int offset, int len)
+	{
+		int h = hash(buf, offset, len);
+		Stripe stripe = stripe(h);
+		synchronized (stripe)
+		{
+			int i = stripe.find(buf, offset, len, h);
+			AbstractSymbol sym = stripe.get(i);
+			return sym != null ? sym : add(stripe, i, new String(buf,
+					offset, len), len);
+		}
+	}
+
+	/**
+	 * Adds the characters of the specified sequence, e.g., of a
+	 * StringBuilder, to this string table. No string is created if the
+	 * characters are in the table already
+	 * 
+	 * @param s the characters
+	 * @return the symbol for the characters
+	 * */
+	public AbstractSymbol addString(CharSequence s)
+	{
+		int len = s.length();
+		int h = hash(s, len);
+		Stripe stripe = stripe(h);
+		synchronized (stripe)
+		{
+			int i = stripe.find(s, len, h);
+			AbstractSymbol sym = stripe.get(i);
+			return sym != null ? sym : add(stripe, i, s.toString(), len);
+		}
 	}
 
 	/**
@@ -166,18 +373,56 @@ public abstract class AbstractTable
 	 * */
 	public AbstractSymbol lookup(String s)
 	{
-		if (tbl.containsKey(s))
-			return tbl.get(s);
+		AbstractSymbol sym;
+		Stripe stripe = stripe(s.hashCode());
+		synchronized (stripe)
+		{
+			sym = stripe.get(stripe.find(s, s.length(), s.hashCode()));
+		}
+		if (sym != null)
+			return sym;
 		Utilities.fatalError("String table lookup failed on string: " + s);
 		return null;
 	}
 
+	/**
+	 * Renumbers the symbols in the order of their strings, the shorter ones
+	 * first. The indices handed out as the strings are interned follow the
+	 * order in which the sources are scanned, which is not fixed when they
+	 * are scanned in parallel. The constants are renumbered before they are
+	 * emitted so that their labels do not change from one compilation to the
+	 * next.
+	 * 
+	 * No string may be added to the table while it is renumbered, and the
+	 * indices of the symbols must not have been used yet, e.g., in labels
+	 */
+	public void renumber()
+	{
+		synchronized (tbl)
+		{
+			Collections.sort(tbl, new Comparator<AbstractSymbol>()
+			{
+				public int compare(AbstractSymbol a, AbstractSymbol b)
+				{
+					if (a.str.length() != b.str.length())
+						return a.str.length() - b.str.length();
+					return a.str.compareTo(b.str);
+				}
+			});
+			for (int i = 0; i < tbl.size(); i++)
+				tbl.get(i).index = i;
+		}
+	}
+
 	/** Produces a printable representation of the string table */
 	public String toString()
 	{
 		String res = "[\n";
-		for (AbstractSymbol sym : tbl.values())
-			res += "  " + sym.toString() + "\n";
+		synchronized (tbl)
+		{
+			for (AbstractSymbol sym : tbl)
+				res += "  " + sym.toString() + "\n";
+		}
 		res += "]\n";
 		return res;
 	}
@@ -67,7 +67,7 @@ public class Flags
 	static int cgen_Memmgr_Debug = GC_QUICK;
 
 	/** Code optimization flag */
-	static boolean cgen_optimize = false;
+	public static boolean cgen_optimize = false;
 
 	/** Output filename */
 	public static String out_filename = null;
@@ -84,6 +84,12 @@ public class Flags
 	/** Enable code gen debugging */
 	public static boolean cgen_debug = false;
 
+	/** Emit only instructions, directives and labels, without comments */
+	public static boolean cgen_release = false;
+
+	/** Process the classes of the program concurrently */
+	public static boolean parallel = false;
+
 	/**
 	 * Processes command line flags and extracts filenames to be compiled
 	 * 
@@ -144,6 +150,12 @@ public class Flags
 					case 'c':
 						cgen_debug = true;
 						break;
+					case 'P':
+						parallel = true;
+						break;
+					case 'R':
+						cgen_release = true;
+						break;
 					default:
 						unknownopt = true;
 						break;
@@ -163,7 +175,7 @@ public class Flags
 		if (unknownopt)
 		{
 			System.err
-					.println("usage: <program> [-OgtT -o outname] [input-files]\n");
+					.println("usage: <program> [-OgtTPR -o outname] [input-files]\n");
 			System.exit(1);
 		}
 
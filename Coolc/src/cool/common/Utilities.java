@@ -97,7 +97,18 @@ public class Utilities
 	 * */
 	static String tokenToString(Symbol s)
 	{
-		switch (s.sym)
+		return tokenToString(s.sym);
+	}
+
+	/**
+	 * Returns a string representation for a kind of token
+	 * 
+	 * @param kind the kind of the token, one of TokenConstants
+	 * @return the string representation
+	 * */
+	public static String tokenToString(int kind)
+	{
+		switch (kind)
 		{
 		case TokenConstants.CLASS:
 			return ("CLASS");
@@ -188,7 +199,7 @@ public class Utilities
 		case TokenConstants.EOF:
 			return ("EOF");
 		default:
-			return ("<Invalid Token: " + s.sym + ">");
+			return ("<Invalid Token: " + kind + ">");
 		}
 	}
 
@@ -201,33 +212,48 @@ public class Utilities
 	 * */
 	public static void dumpToken(PrintStream str, int lineno, Symbol s)
 	{
-		str.print("#" + lineno + " " + Utilities.tokenToString(s));
+		dumpToken(str, lineno, s.sym, s.value);
+	}
+
+	/**
+	 * Dumps a token, given by its kind and its value, to the specified stream.
+	 * Used by the stand-alone lexer to display the tokens of a TokenStream
+	 * 
+	 * @param str the stream
+	 * @param lineno the line number of the token
+	 * @param kind the kind of the token, one of TokenConstants
+	 * @param value the value of the token
+	 * */
+	public static void dumpToken(PrintStream str, int lineno, int kind,
+			Object value)
+	{
+		str.print("#" + lineno + " " + Utilities.tokenToString(kind));
 
 		String val = null;
 
-		switch (s.sym)
+		switch (kind)
 		{
 		case TokenConstants.BOOL_CONST:
-			str.print(" " + s.value);
+			str.print(" " + value);
 			break;
 		case TokenConstants.INT_CONST:
-			val = ((AbstractSymbol) s.value).toString();
+			val = ((AbstractSymbol) value).toString();
 			str.print(" " + val);
 			break;
 		case TokenConstants.TYPEID:
 		case TokenConstants.OBJECTID:
-			val = ((AbstractSymbol) s.value).toString();
+			val = ((AbstractSymbol) value).toString();
 			str.print(" " + val);
 			break;
 		case TokenConstants.STR_CONST:
-			val = ((AbstractSymbol) s.value).toString();
+			val = ((AbstractSymbol) value).toString();
 			str.print(" \"");
 			Utilities.printEscapedString(str, val);
 			str.print("\"");
 			break;
 		case TokenConstants.ERROR:
 			str.print(" \"");
-			Utilities.printEscapedString(str, s.value.toString());
+			Utilities.printEscapedString(str, value.toString());
 			str.print("\"");
 			break;
 		}
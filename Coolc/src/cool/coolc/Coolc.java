@@ -4,15 +4,18 @@ import cool.common.Flags;
 import cool.common.Utilities;
 
 import cool.lexer.CoolTokenLexer;
+import cool.lexer.SourceFile;
 
 import cool.parser.CoolParser;
 import cool.parser.Program;
 
+import cool.cgen.AsmWriter;
+
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.CharBuffer;
 
 /**
  * Makes us of inhouse components
@@ -27,13 +30,12 @@ class Coolc
 
 		for (int i = 0; i < args.length; i++)
 		{
-			FileReader file = null;
 			try
 			{
-				file = new FileReader(args[i]);
+				CharBuffer source = SourceFile.read(args[i]);
 
 				// Scan
-				CoolTokenLexer lexer = new CoolTokenLexer(file);
+				CoolTokenLexer lexer = new CoolTokenLexer(source);
 				lexer.set_filename(args[i]);
 
 				// Parse
@@ -50,7 +52,7 @@ class Coolc
 				((Program) result).semant();
 
 				// Generate code
-				PrintStream output = System.out;
+				PrintStream output = new AsmWriter(System.out);
 				String filename = null;
 				if (Flags.out_filename == null)
 				{
@@ -64,7 +66,8 @@ class Coolc
 				if (filename != null)
 					try
 					{
-						output = new PrintStream(new FileOutputStream(filename));
+						output = new AsmWriter(new FileOutputStream(filename)
+								.getChannel());
 					}
 					catch (IOException ex)
 					{
@@ -73,6 +76,7 @@ class Coolc
 					}
 
 				((Program) result).cgen(output);
+				output.flush();
 			}
 			catch (FileNotFoundException ex)
 			{
@@ -4,14 +4,13 @@ import cool.common.Flags;
 import cool.common.Utilities;
 
 import cool.lexer.CoolTokenLexer;
+import cool.lexer.SourceFile;
 
 import cool.parser.TokenConstants;
 
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-
-import java_cup.runtime.Symbol;
+import java.nio.CharBuffer;
 
 /**
  * 
@@ -27,17 +26,16 @@ class LexerDriver
 
 		for (int i = 0; i < args.length; i++)
 		{
-			FileReader file = null;
 			try
 			{
-				file = new FileReader(args[i]);
+				CharBuffer source = SourceFile.read(args[i]);
 
 				// Scan
-				CoolTokenLexer lexer = new CoolTokenLexer(file);
+				CoolTokenLexer lexer = new CoolTokenLexer(source);
 				lexer.set_filename(args[i]);
-				Symbol s;
-				while ((s = lexer.next_token()).sym != TokenConstants.EOF)
-					Utilities.dumpToken(System.out, lexer.curr_lineno(), s);
+				while (lexer.next() != TokenConstants.EOF)
+					Utilities.dumpToken(System.out, lexer.getLine(),
+							lexer.getKind(), lexer.getValue());
 			}
 			catch (FileNotFoundException ex)
 			{
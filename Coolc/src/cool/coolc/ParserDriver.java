@@ -4,13 +4,14 @@ import cool.common.Flags;
 import cool.common.Utilities;
 
 import cool.lexer.CoolTokenLexer;
+import cool.lexer.SourceFile;
 
 import cool.parser.CoolParser;
 import cool.parser.Program;
 
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.CharBuffer;
 
 import java_cup.runtime.Symbol;
 
@@ -29,13 +30,12 @@ class ParserDriver
 
 		for (int i = 0; i < args.length; i++)
 		{
-			FileReader file = null;
 			try
 			{
-				file = new FileReader(args[i]);
+				CharBuffer source = SourceFile.read(args[i]);
 
 				// Scan
-				CoolTokenLexer lexer = new CoolTokenLexer(file);
+				CoolTokenLexer lexer = new CoolTokenLexer(source);
 				lexer.set_filename(args[i]);
 
 				// Parse
@@ -4,13 +4,14 @@ import cool.common.Flags;
 import cool.common.Utilities;
 
 import cool.lexer.CoolTokenLexer;
+import cool.lexer.SourceFile;
 
 import cool.parser.CoolParser;
 import cool.parser.Program;
 
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.CharBuffer;
 
 /**
  * Semantic analyzer driver. Makes use of inhouse lexer and parser
@@ -27,13 +28,12 @@ class SemantDriver
 
 		for (int i = 0; i < args.length; i++)
 		{
-			FileReader file = null;
 			try
 			{
-				file = new FileReader(args[i]);
+				CharBuffer source = SourceFile.read(args[i]);
 
 				// Scan
-				CoolTokenLexer lexer = new CoolTokenLexer(file);
+				CoolTokenLexer lexer = new CoolTokenLexer(source);
 				lexer.set_filename(args[i]);
 
 				// Parse
@@ -22,12 +22,28 @@ final class CoolStringBuilder
 	 * Also a StringBuilder is used instead of a StringBuffer as this(scanning)
 	 * is a single threaded execution
 	 */
-	private StringBuilder buf;
+	private final StringBuilder buf;
 	private boolean err;
 
-	CoolStringBuilder()
+	/**
+	 * Creates a builder
+	 * 
+	 * @param capacity The initial capacity of the buffer, e.g., the maximum
+	 *            length of a cool string constant
+	 */
+	CoolStringBuilder(int capacity)
+	{
+		buf = new StringBuilder(capacity);
+		err = false;
+	}
+
+	/**
+	 * Empties the builder so that it can assemble the next string constant.
+	 * The buffer is reused
+	 */
+	void reset()
 	{
-		buf = new StringBuilder();
+		buf.setLength(0);
 		err = false;
 	}
 
@@ -46,73 +62,78 @@ final class CoolStringBuilder
 		return buf.length();
 	}
 
-	CoolStringBuilder append(String str) throws NullInCoolStringException,
-			EscapedNullInCoolStringException
-	{
-		buf.append(toCoolString(str));
-
-		return this;
-	}
-
-	public String toString()
-	{
-		return buf.toString();
-	}
-
 	/**
-	 * Converts input string chunk to a cool string by converting escape
-	 * sequences to the actual character representations
-	 * 
-	 * @param str The input string chunk
-	 * @return The formatted cool string chunk
+	 * Appends an input string chunk, converting the escape sequences to the
+	 * actual character representations. The chunk is converted in a single
+	 * pass, directly into the buffer. If it contains a null character none of
+	 * it is appended
 	 * 
+	 * @param text The characters of the input
+	 * @param offset The start of the chunk in text
+	 * @param len The length of the chunk
 	 */
-	private StringBuilder toCoolString(String str)
+	CoolStringBuilder append(char[] text, int offset, int len)
 			throws NullInCoolStringException, EscapedNullInCoolStringException
 	{
-		StringBuilder sb = new StringBuilder(str);
-		for (int i = 0; i < sb.length(); i++)
+		int start = buf.length();
+		int end = offset + len;
+		for (int i = offset; i < end; i++)
 		{
+			char c = text[i];
+
 			// null character
-			if (sb.charAt(i) == 0)
+			if (c == 0)
 			{
-				setError();
+				fail(start);
 				throw new NullInCoolStringException();
 			}
 
-			// escape character
-			if (sb.charAt(i) == '\\')
-				if (i == sb.length() - 1) // if '\' is the last character it
-											// isn't specifying an escape
-											// sequence
-					sb.deleteCharAt(i);
-				else
+			if (c == '\\')
+			{
+				// If '\' is the last character it isn't specifying an escape
+				// sequence
+				if (++i == end)
+					break;
+				c = text[i];
+				switch (c)
 				{
-					sb.deleteCharAt(i); // remove the '/'
-					switch (sb.charAt(i))
-					{
-					case 'b':
-						sb.deleteCharAt(i);
-						sb.insert(i, '\b');
-						break;
-					case 't':
-						sb.deleteCharAt(i);
-						sb.insert(i, '\t');
-						break;
-					case 'n':
-						sb.deleteCharAt(i);
-						sb.insert(i, '\n');
-						break;
-					case 'f':
-						sb.deleteCharAt(i);
-						sb.insert(i, '\f');
-						break;
-					case 0:
-						setError();
-						throw new EscapedNullInCoolStringException();
-					}
+				case 'b':
+					c = '\b';
+					break;
+				case 't':
+					c = '\t';
+					break;
+				case 'n':
+					c = '\n';
+					break;
+				case 'f':
+					c = '\f';
+					break;
+				case 0:
+					fail(start);
+					throw new EscapedNullInCoolStringException();
 				}
-		} // end of for
-		return sb;
+			}
+			buf.append(c);
+		}
+		return this;
+	}
+
+	/** Drops the chunk being appended, which starts at start */
+	private void fail(int start)
+	{
+		buf.setLength(start);
+		setError();
+	}
+
+	/** Returns the characters assembled so far, without copying them */
+	CharSequence chars()
+	{
+		return buf;
+	}
+
+	public String toString()
+	{
+		return buf.toString();
 	}
-}
\ No newline at end of file
+}
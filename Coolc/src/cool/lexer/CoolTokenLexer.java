@@ -14,7 +14,7 @@ import cool.common.NullInCoolStringException;
 import cool.parser.TokenConstants;
 
 
-public class CoolTokenLexer  implements java_cup.runtime.Scanner {
+public class CoolTokenLexer  implements TokenStream, java_cup.runtime.Scanner {
 	private final int YY_BUFFER_SIZE = 512;
 	private final int YY_F = -1;
 	private final int YY_NO_STATE = -1;
@@ -31,8 +31,8 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
  */
     // Max size of cool string constants
     static int MAX_STR_CONST = 1024;
-    // For assembling string constants
-    CoolStringBuilder coolStr = new CoolStringBuilder();
+    // For assembling string constants. Reused for each of them
+    CoolStringBuilder coolStr = new CoolStringBuilder(MAX_STR_CONST + 1);
     // Helps identify the line number of the tokens
     private int curr_lineno = 1;
     // Used to print the lexer output by Utilities.dumptoken()
@@ -46,12 +46,88 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
     }
     // used to track the nesting level of comments
     private int nested = 0;
+    /*
+     * The current token. The lexer scans the tokens into these fields,
+     * which are reused for every token, instead of allocating a Symbol for
+     * each of them. See TokenStream.
+     */
+    private int tokenKind;
+    private Object tokenValue;
+    private int tokenStart;
+    private int tokenEnd;
+    private int tokenLine;
+    // Offset of the opening quote of the string constant being scanned
+    private int stringStart;
+    // Makes the text matched the current token
+    private int token(int kind) {
+	return token(kind, null);
+    }
+    private int token(int kind, Object value) {
+	return token(kind, value, yychar, yychar + yylength());
+    }
+    // Makes the string constant matched so far the current token
+    private int stringToken(int kind, Object value) {
+	return token(kind, value, stringStart, yychar + yylength());
+    }
+    private int token(int kind, Object value, int start, int end) {
+	tokenKind = kind;
+	tokenValue = value;
+	tokenStart = start;
+	tokenEnd = end;
+	tokenLine = curr_lineno;
+	return kind;
+    }
+    public int getKind() { return tokenKind; }
+    public Object getValue() { return tokenValue; }
+    public int getStart() { return tokenStart; }
+    public int getEnd() { return tokenEnd; }
+    public int getLine() { return tokenLine; }
+    public AbstractSymbol getSymbol() {
+	return tokenValue instanceof AbstractSymbol
+	    ? (AbstractSymbol) tokenValue : null;
+    }
+    /*
+     * Interns the matched text straight from the buffer, so that no string
+     * is created for an identifier or a constant seen before
+     */
+    private AbstractSymbol intern(AbstractTable table) {
+	return table.addString(yy_buffer, yy_buffer_start, yylength());
+    }
+    /*
+     * Adapts the token stream to the parser, which needs a Symbol of its own
+     * for each token
+     */
+    public Symbol next_token() throws java.io.IOException {
+	int kind = next();
+	return tokenValue == null ? new Symbol(kind)
+	    : new Symbol(kind, tokenValue);
+    }
+    /*
+     * Creates a lexer which scans the characters of the source directly,
+     * e.g., those of a file read by SourceFile.read(). The characters become
+     * the buffer of the lexer, which thus never refills it. The reader only
+     * signals the end of the input.
+     */
+    public CoolTokenLexer(java.nio.CharBuffer source) {
+	this();
+	yy_buffer_read = source.remaining();
+	if (source.hasArray() && source.arrayOffset() == 0
+	    && source.position() == 0 && yy_buffer_read > 0) {
+	    yy_buffer = source.array();
+	} else {
+	    // An empty buffer would never be refilled
+	    yy_buffer = new char[Math.max(yy_buffer_read, 1)];
+	    source.get(yy_buffer, 0, yy_buffer_read);
+	}
+	yy_reader = new java.io.BufferedReader(new java.io.StringReader(""), 1);
+    }
 	private java.io.BufferedReader yy_reader;
 	private int yy_buffer_index;
 	private int yy_buffer_read;
 	private int yy_buffer_start;
 	private int yy_buffer_end;
 	private char yy_buffer[];
+	private int yychar;
 	private boolean yy_at_bol;
 	private int yy_lexical_state;
 
@@ -77,6 +153,7 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
 		yy_buffer_index = 0;
 		yy_buffer_start = 0;
 		yy_buffer_end = 0;
+		yychar = 0;
 		yy_at_bol = true;
 		yy_lexical_state = YYINITIAL;
 
@@ -152,6 +229,8 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
 	}
 	private boolean yy_last_was_cr=false;
 	private void yy_mark_start () {
+		yychar = yychar
+			+ yy_buffer_index - yy_buffer_start;
 		yy_buffer_start = yy_buffer_index;
 	}
 	private void yy_mark_end () {
@@ -479,7 +558,7 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
 ",138,158:9,-1:3,158:6,136,158:5,138,158:6,-1:21,159:8,139,159:10,-1:3,159:6" +
 ",139,159:12,-1:21,158:2,142,158:16,-1:3,158,142,158:17,-1");
 
-	public java_cup.runtime.Symbol next_token ()
+	public int next ()
 		throws java.io.IOException {
 		int yy_lookahead;
 		int yy_anchor = YY_NO_ANCHOR;
@@ -507,18 +586,19 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
  *  Ultimately, an EOF symbol is returned by the scanner to indicate that the
  *  file has been scanned
  */
+    // Nothing is matched at the end of the input
     switch(yy_lexical_state) {
     case STRING:
         yybegin(YYINITIAL);
         if (!coolStr.inError())
-            return new Symbol(TokenConstants.ERROR, 
-                "EOF in string constant");
+            return token(TokenConstants.ERROR, 
+                "EOF in string constant", stringStart, yychar);
     case COMMENT:        
         yybegin(YYINITIAL);
-            return new Symbol(TokenConstants.ERROR,
-                "EOF in comment");
+            return token(TokenConstants.ERROR,
+                "EOF in comment", yychar, yychar);
     }
-    return new Symbol(TokenConstants.EOF);
+    return token(TokenConstants.EOF, null, yychar, yychar);
 			}
 			if (YY_F != yy_next_state) {
 				yy_state = yy_next_state;
@@ -545,19 +625,19 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
 					case -2:
 						break;
 					case 2:
-						{ return new Symbol(TokenConstants.LPAREN); }
+						{ return token(TokenConstants.LPAREN); }
 					case -3:
 						break;
 					case 3:
-						{ return new Symbol(TokenConstants.MULT); }
+						{ return token(TokenConstants.MULT); }
 					case -4:
 						break;
 					case 4:
-						{ return new Symbol(TokenConstants.RPAREN); }
+						{ return token(TokenConstants.RPAREN); }
 					case -5:
 						break;
 					case 5:
-						{ return new Symbol(TokenConstants.ERROR, yytext().charAt(0)); }
+						{ return token(TokenConstants.ERROR, yy_buffer[yy_buffer_start]); }
 					case -6:
 						break;
 					case 6:
@@ -565,72 +645,73 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
 					case -7:
 						break;
 					case 7:
-						{ return new Symbol(TokenConstants.MINUS); }
+						{ return token(TokenConstants.MINUS); }
 					case -8:
 						break;
 					case 8:
-						{ return new Symbol(TokenConstants.EQ); }
+						{ return token(TokenConstants.EQ); }
 					case -9:
 						break;
 					case 9:
-						{ return new Symbol(TokenConstants.LT); }
+						{ return token(TokenConstants.LT); }
 					case -10:
 						break;
 					case 10:
-						{ return new Symbol(TokenConstants.NEG); }
+						{ return token(TokenConstants.NEG); }
 					case -11:
 						break;
 					case 11:
-						{ return new Symbol(TokenConstants.PLUS); }
+						{ return token(TokenConstants.PLUS); }
 					case -12:
 						break;
 					case 12:
-						{ return new Symbol(TokenConstants.DIV); }
+						{ return token(TokenConstants.DIV); }
 					case -13:
 						break;
 					case 13:
-						{ return new Symbol(TokenConstants.LBRACE); }
+						{ return token(TokenConstants.LBRACE); }
 					case -14:
 						break;
 					case 14:
-						{ return new Symbol(TokenConstants.RBRACE); }
+						{ return token(TokenConstants.RBRACE); }
 					case -15:
 						break;
 					case 15:
-						{ return new Symbol(TokenConstants.COLON); }
+						{ return token(TokenConstants.COLON); }
 					case -16:
 						break;
 					case 16:
-						{ return new Symbol(TokenConstants.SEMI); }
+						{ return token(TokenConstants.SEMI); }
 					case -17:
 						break;
 					case 17:
-						{ return new Symbol(TokenConstants.COMMA); }
+						{ return token(TokenConstants.COMMA); }
 					case -18:
 						break;
 					case 18:
-						{ return new Symbol(TokenConstants.DOT); }
+						{ return token(TokenConstants.DOT); }
 					case -19:
 						break;
 					case 19:
-						{ return new Symbol(TokenConstants.AT); }
+						{ return token(TokenConstants.AT); }
 					case -20:
 						break;
 					case 20:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -21:
 						break;
 					case 21:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -22:
 						break;
 					case 22:
 						{ 
                         /* Start of a string */
                         yybegin(STRING);
-                        coolStr = new CoolStringBuilder();
+                        coolStr.reset();
+                        stringStart = yychar;
                         }
 					case -23:
 						break;
@@ -639,8 +720,8 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
 					case -24:
 						break;
 					case 24:
-						{ return new Symbol(TokenConstants.INT_CONST,
-                                        AbstractTable.inttable.addString(yytext()));}
+						{ return token(TokenConstants.INT_CONST,
+                                        intern(AbstractTable.inttable));}
 					case -25:
 						break;
 					case 25:
@@ -648,7 +729,7 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
 					case -26:
 						break;
 					case 26:
-						{ return new Symbol(TokenConstants.ERROR, "Unmatched *)");}
+						{ return token(TokenConstants.ERROR, "Unmatched *)");}
 					case -27:
 						break;
 					case 27:
@@ -656,91 +737,91 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
 					case -28:
 						break;
 					case 28:
-						{ return new Symbol(TokenConstants.DARROW); }
+						{ return token(TokenConstants.DARROW); }
 					case -29:
 						break;
 					case 29:
-						{ return new Symbol(TokenConstants.ASSIGN); }
+						{ return token(TokenConstants.ASSIGN); }
 					case -30:
 						break;
 					case 30:
-						{ return new Symbol(TokenConstants.LE); }
+						{ return token(TokenConstants.LE); }
 					case -31:
 						break;
 					case 31:
-						{ return new Symbol(TokenConstants.FI); }
+						{ return token(TokenConstants.FI); }
 					case -32:
 						break;
 					case 32:
-						{ return new Symbol(TokenConstants.IF); }
+						{ return token(TokenConstants.IF); }
 					case -33:
 						break;
 					case 33:
-						{ return new Symbol(TokenConstants.IN); }
+						{ return token(TokenConstants.IN); }
 					case -34:
 						break;
 					case 34:
-						{ return new Symbol(TokenConstants.OF); }
+						{ return token(TokenConstants.OF); }
 					case -35:
 						break;
 					case 35:
-						{ return new Symbol(TokenConstants.LET); }
+						{ return token(TokenConstants.LET); }
 					case -36:
 						break;
 					case 36:
-						{ return new Symbol(TokenConstants.NEW); }
+						{ return token(TokenConstants.NEW); }
 					case -37:
 						break;
 					case 37:
-						{ return new Symbol(TokenConstants.NOT); }
+						{ return token(TokenConstants.NOT); }
 					case -38:
 						break;
 					case 38:
-						{ return new Symbol(TokenConstants.CASE); }
+						{ return token(TokenConstants.CASE); }
 					case -39:
 						break;
 					case 39:
-						{ return new Symbol(TokenConstants.LOOP); }
+						{ return token(TokenConstants.LOOP); }
 					case -40:
 						break;
 					case 40:
-						{ return new Symbol(TokenConstants.ELSE); }
+						{ return token(TokenConstants.ELSE); }
 					case -41:
 						break;
 					case 41:
-						{ return new Symbol(TokenConstants.ESAC); }
+						{ return token(TokenConstants.ESAC); }
 					case -42:
 						break;
 					case 42:
-						{ return new Symbol(TokenConstants.THEN); }
+						{ return token(TokenConstants.THEN); }
 					case -43:
 						break;
 					case 43:
-						{ return new Symbol(TokenConstants.POOL); }
+						{ return token(TokenConstants.POOL); }
 					case -44:
 						break;
 					case 44:
-						{ return new Symbol(TokenConstants.BOOL_CONST, true); }
+						{ return token(TokenConstants.BOOL_CONST, true); }
 					case -45:
 						break;
 					case 45:
-						{ return new Symbol(TokenConstants.CLASS); }
+						{ return token(TokenConstants.CLASS); }
 					case -46:
 						break;
 					case 46:
-						{ return new Symbol(TokenConstants.WHILE); }
+						{ return token(TokenConstants.WHILE); }
 					case -47:
 						break;
 					case 47:
-						{ return new Symbol(TokenConstants.BOOL_CONST, false); }
+						{ return token(TokenConstants.BOOL_CONST, false); }
 					case -48:
 						break;
 					case 48:
-						{ return new Symbol(TokenConstants.ISVOID); }
+						{ return token(TokenConstants.ISVOID); }
 					case -49:
 						break;
 					case 49:
-						{ return new Symbol(TokenConstants.INHERITS); }
+						{ return token(TokenConstants.INHERITS); }
 					case -50:
 						break;
 					case 50:
@@ -788,15 +869,15 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
                          * expression indicates an unterminated string which
                          * is handled below.
                          */
-                        if (yytext().charAt(yytext().length() - 1) == '\n')
+                        if (yylength() > 0 && yy_buffer[yy_buffer_end - 1] == '\n')
                            curr_lineno++;
-						try { coolStr.append(yytext()); }
+						try { coolStr.append(yy_buffer, yy_buffer_start, yylength()); }
 						catch(NullInCoolStringException e)  { 
-						    return new Symbol(TokenConstants.ERROR,
+						    return stringToken(TokenConstants.ERROR,
 							    "String contains null character");
 						}
 						catch(EscapedNullInCoolStringException e) {
-						    return new Symbol(TokenConstants.ERROR,
+						    return stringToken(TokenConstants.ERROR,
 							    "String contains an escaped null character");
 						}
                         }
@@ -812,7 +893,7 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
                             ++curr_lineno;
                             yybegin(YYINITIAL);
                             if (!coolStr.inError())
-                                return new Symbol(TokenConstants.ERROR, 
+                                return stringToken(TokenConstants.ERROR, 
                                     "Unterminated string constant");
                         }
 					case -58:
@@ -824,92 +905,92 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
                         {
                             coolStr.setError();
                             yybegin(YYINITIAL);
-                            return new Symbol(TokenConstants.ERROR,
+                            return stringToken(TokenConstants.ERROR,
                                 "String constant too long");
                          }
                          yybegin(YYINITIAL);
                          if (!coolStr.inError())
-                            return new Symbol(TokenConstants.STR_CONST, 
-                                        AbstractTable.stringtable.addString(coolStr.toString()));
+                            return stringToken(TokenConstants.STR_CONST, 
+                                        AbstractTable.stringtable.addString(coolStr.chars()));
                          }
 					case -59:
 						break;
 					case 60:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -60:
 						break;
 					case 61:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -61:
 						break;
 					case 62:
-						{ return new Symbol(TokenConstants.FI); }
+						{ return token(TokenConstants.FI); }
 					case -62:
 						break;
 					case 63:
-						{ return new Symbol(TokenConstants.IF); }
+						{ return token(TokenConstants.IF); }
 					case -63:
 						break;
 					case 64:
-						{ return new Symbol(TokenConstants.IN); }
+						{ return token(TokenConstants.IN); }
 					case -64:
 						break;
 					case 65:
-						{ return new Symbol(TokenConstants.OF); }
+						{ return token(TokenConstants.OF); }
 					case -65:
 						break;
 					case 66:
-						{ return new Symbol(TokenConstants.LET); }
+						{ return token(TokenConstants.LET); }
 					case -66:
 						break;
 					case 67:
-						{ return new Symbol(TokenConstants.NEW); }
+						{ return token(TokenConstants.NEW); }
 					case -67:
 						break;
 					case 68:
-						{ return new Symbol(TokenConstants.NOT); }
+						{ return token(TokenConstants.NOT); }
 					case -68:
 						break;
 					case 69:
-						{ return new Symbol(TokenConstants.CASE); }
+						{ return token(TokenConstants.CASE); }
 					case -69:
 						break;
 					case 70:
-						{ return new Symbol(TokenConstants.LOOP); }
+						{ return token(TokenConstants.LOOP); }
 					case -70:
 						break;
 					case 71:
-						{ return new Symbol(TokenConstants.ELSE); }
+						{ return token(TokenConstants.ELSE); }
 					case -71:
 						break;
 					case 72:
-						{ return new Symbol(TokenConstants.ESAC); }
+						{ return token(TokenConstants.ESAC); }
 					case -72:
 						break;
 					case 73:
-						{ return new Symbol(TokenConstants.THEN); }
+						{ return token(TokenConstants.THEN); }
 					case -73:
 						break;
 					case 74:
-						{ return new Symbol(TokenConstants.POOL); }
+						{ return token(TokenConstants.POOL); }
 					case -74:
 						break;
 					case 75:
-						{ return new Symbol(TokenConstants.CLASS); }
+						{ return token(TokenConstants.CLASS); }
 					case -75:
 						break;
 					case 76:
-						{ return new Symbol(TokenConstants.WHILE); }
+						{ return token(TokenConstants.WHILE); }
 					case -76:
 						break;
 					case 77:
-						{ return new Symbol(TokenConstants.ISVOID); }
+						{ return token(TokenConstants.ISVOID); }
 					case -77:
 						break;
 					case 78:
-						{ return new Symbol(TokenConstants.INHERITS); }
+						{ return token(TokenConstants.INHERITS); }
 					case -78:
 						break;
 					case 79:
@@ -932,28 +1013,28 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
                          * expression indicates an unterminated string which
                          * is handled below.
                          */
-                        if (yytext().charAt(yytext().length() - 1) == '\n')
+                        if (yylength() > 0 && yy_buffer[yy_buffer_end - 1] == '\n')
                            curr_lineno++;
-						try { coolStr.append(yytext()); }
+						try { coolStr.append(yy_buffer, yy_buffer_start, yylength()); }
 						catch(NullInCoolStringException e)  { 
-						    return new Symbol(TokenConstants.ERROR,
+						    return stringToken(TokenConstants.ERROR,
 							    "String contains null character");
 						}
 						catch(EscapedNullInCoolStringException e) {
-						    return new Symbol(TokenConstants.ERROR,
+						    return stringToken(TokenConstants.ERROR,
 							    "String contains an escaped null character");
 						}
                         }
 					case -80:
 						break;
 					case 82:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -81:
 						break;
 					case 83:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -82:
 						break;
 					case 84:
@@ -972,423 +1053,423 @@ public class CoolTokenLexer  implements java_cup.runtime.Scanner {
                          * expression indicates an unterminated string which
                          * is handled below.
                          */
-                        if (yytext().charAt(yytext().length() - 1) == '\n')
+                        if (yylength() > 0 && yy_buffer[yy_buffer_end - 1] == '\n')
                            curr_lineno++;
-						try { coolStr.append(yytext()); }
+						try { coolStr.append(yy_buffer, yy_buffer_start, yylength()); }
 						catch(NullInCoolStringException e)  { 
-						    return new Symbol(TokenConstants.ERROR,
+						    return stringToken(TokenConstants.ERROR,
 							    "String contains null character");
 						}
 						catch(EscapedNullInCoolStringException e) {
-						    return new Symbol(TokenConstants.ERROR,
+						    return stringToken(TokenConstants.ERROR,
 							    "String contains an escaped null character");
 						}
                         }
 					case -83:
 						break;
 					case 86:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -84:
 						break;
 					case 87:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -85:
 						break;
 					case 89:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -86:
 						break;
 					case 90:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -87:
 						break;
 					case 92:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -88:
 						break;
 					case 93:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -89:
 						break;
 					case 94:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -90:
 						break;
 					case 95:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -91:
 						break;
 					case 96:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -92:
 						break;
 					case 97:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -93:
 						break;
 					case 98:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -94:
 						break;
 					case 99:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -95:
 						break;
 					case 100:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -96:
 						break;
 					case 101:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -97:
 						break;
 					case 102:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -98:
 						break;
 					case 103:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -99:
 						break;
 					case 104:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -100:
 						break;
 					case 105:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -101:
 						break;
 					case 106:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -102:
 						break;
 					case 107:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -103:
 						break;
 					case 108:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -104:
 						break;
 					case 109:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -105:
 						break;
 					case 110:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -106:
 						break;
 					case 111:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -107:
 						break;
 					case 112:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -108:
 						break;
 					case 113:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -109:
 						break;
 					case 114:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -110:
 						break;
 					case 115:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -111:
 						break;
 					case 116:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -112:
 						break;
 					case 117:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -113:
 						break;
 					case 118:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -114:
 						break;
 					case 119:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -115:
 						break;
 					case 120:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -116:
 						break;
 					case 121:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -117:
 						break;
 					case 122:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -118:
 						break;
 					case 123:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -119:
 						break;
 					case 124:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -120:
 						break;
 					case 125:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -121:
 						break;
 					case 126:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -122:
 						break;
 					case 127:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -123:
 						break;
 					case 128:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -124:
 						break;
 					case 129:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -125:
 						break;
 					case 130:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -126:
 						break;
 					case 131:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -127:
 						break;
 					case 132:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -128:
 						break;
 					case 133:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -129:
 						break;
 					case 134:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -130:
 						break;
 					case 135:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -131:
 						break;
 					case 136:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -132:
 						break;
 					case 137:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -133:
 						break;
 					case 138:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -134:
 						break;
 					case 139:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -135:
 						break;
 					case 140:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -136:
 						break;
 					case 141:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -137:
 						break;
 					case 142:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -138:
 						break;
 					case 143:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -139:
 						break;
 					case 144:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -140:
 						break;
 					case 145:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -141:
 						break;
 					case 146:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -142:
 						break;
 					case 147:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -143:
 						break;
 					case 148:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -144:
 						break;
 					case 149:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -145:
 						break;
 					case 150:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -146:
 						break;
 					case 151:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -147:
 						break;
 					case 152:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -148:
 						break;
 					case 153:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -149:
 						break;
 					case 154:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -150:
 						break;
 					case 155:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -151:
 						break;
 					case 156:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -152:
 						break;
 					case 157:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -153:
 						break;
 					case 158:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -154:
 						break;
 					case 159:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -155:
 						break;
 					case 160:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -156:
 						break;
 					case 161:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -157:
 						break;
 					case 162:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -158:
 						break;
 					case 163:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -159:
 						break;
 					case 164:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -160:
 						break;
 					case 165:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -161:
 						break;
 					case 166:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -162:
 						break;
 					case 167:
-						{ return new Symbol(TokenConstants.TYPEID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.TYPEID,
+                                        intern(AbstractTable.idtable));}
 					case -163:
 						break;
 					case 168:
-						{ return new Symbol(TokenConstants.OBJECTID,
-                                        AbstractTable.idtable.addString(yytext()));}
+						{ return token(TokenConstants.OBJECTID,
+                                        intern(AbstractTable.idtable));}
 					case -164:
 						break;
 					default:
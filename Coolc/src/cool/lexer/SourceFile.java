@@ -0,0 +1,48 @@
+package cool.lexer;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Reads a COOL source file for the lexer.
+ * 
+ * The file is memory mapped and decoded into a single CharBuffer in one go.
+ * A CoolTokenLexer created on the buffer scans it in place, instead of
+ * decoding the file through a reader and copying it into its buffer a few
+ * hundred characters at a time.
+ * 
+ * The file is decoded using the default charset, as a FileReader does.
+ */
+public class SourceFile
+{
+	private SourceFile()
+	{
+	}
+
+	/**
+	 * Reads the specified file
+	 * 
+	 * @param filename The name of the file
+	 * @return The characters of the file
+	 * @throws java.io.FileNotFoundException If the file cannot be opened
+	 * @throws IOException If the file cannot be read
+	 */
+	public static CharBuffer read(String filename) throws IOException
+	{
+		FileInputStream in = new FileInputStream(filename);
+		try
+		{
+			FileChannel channel = in.getChannel();
+			return Charset.defaultCharset().decode(
+					channel.map(FileChannel.MapMode.READ_ONLY, 0,
+							channel.size()));
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package cool.lexer;
+
+import cool.common.AbstractSymbol;
+
+import java.io.IOException;
+
+/**
+ * A stream of the tokens of a COOL source.
+ * 
+ * The stream is advanced a token at a time and the current token is then
+ * queried. No object is allocated per token. The identifiers and constants
+ * are interned into the string tables as they are scanned, so the symbol of
+ * such a token, and its index, is at hand.
+ */
+public interface TokenStream
+{
+	/**
+	 * Scans the next token
+	 * 
+	 * @return The kind of the token, one of TokenConstants. TokenConstants.EOF
+	 *         at the end of the input
+	 * @throws IOException If the input cannot be read
+	 */
+	int next() throws IOException;
+
+	/**
+	 * Returns the kind of the current token, one of TokenConstants
+	 */
+	int getKind();
+
+	/**
+	 * Returns the value of the current token: the symbol of an identifier or
+	 * a constant, a Boolean for a boolean constant, the message or the
+	 * offending character for an error, and null for the other tokens
+	 */
+	Object getValue();
+
+	/**
+	 * Returns the symbol of the current token if it is an identifier or an
+	 * integer or string constant, and null otherwise
+	 */
+	AbstractSymbol getSymbol();
+
+	/**
+	 * Returns the offset in the source of the first character of the current
+	 * token
+	 */
+	int getStart();
+
+	/**
+	 * Returns the offset in the source after the last character of the
+	 * current token
+	 */
+	int getEnd();
+
+	/**
+	 * Returns the line number of the current token, i.e., of its end
+	 */
+	int getLine();
+}
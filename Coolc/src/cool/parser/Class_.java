@@ -11,6 +11,7 @@ import cool.semant.ObjectTypeEnvironment;
 import cool.semant.SemantError;
 
 import cool.cgen.CgenLookupTable;
+import cool.cgen.InstructionList;
 
 import java.io.PrintStream;
 
@@ -36,5 +37,5 @@ public abstract class Class_ extends TreeNode
 			throws PossibleNullDereferenceException,
 			UnresolvableSelfTypeException;
 
-	public abstract void code(CgenLookupTable tbl, PrintStream s);
+	public abstract void code(CgenLookupTable tbl, InstructionList s);
 }
@@ -0,0 +1,197 @@
+package cool.parser;
+
+import cool.common.AbstractSymbol;
+import cool.common.AbstractTable;
+import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
+import cool.common.TreeConstants;
+import cool.common.Utilities;
+
+import java.util.Vector;
+
+/**
+ * Support routines for the folding of the constant expressions of a program.
+ * 
+ * The folding takes place over the typed AST, after semantic analysis and
+ * before code generation, when optimization is enabled(Flags.cgen_optimize).
+ * Every expression folds its subexpressions and then itself, returning the
+ * expression which replaces it. The Int, Bool and String constants are
+ * represented by int_const, bool_const and string_const nodes which are
+ * created, with their types set, by this class.
+ * 
+ * The let variables bound to constants which are never assigned are
+ * propagated using a symbol table which maps a variable to the constant it is
+ * bound to. Any other binding of a name, by a let or a case branch, maps it to
+ * the binding node so that it hides an outer constant of the same name.
+ */
+class ConstantFolder
+{
+	/**
+	 * Folds the constant expressions of the body of a method or of the
+	 * initializer of an attribute
+	 * 
+	 * @param e The expression
+	 * @return The folded expression
+	 */
+	static Expression fold(Expression e)
+	{
+		SymbolTable env = new SymbolTable();
+		env.enterScope();
+		e = e.fold(env);
+		env.exitScope();
+		return e;
+	}
+
+	/**
+	 * Folds the expressions of a list in place
+	 * 
+	 * @param l The list of expressions
+	 * @param env The constants bound to the variables in scope
+	 */
+	static void fold(Expressions l, SymbolTable env)
+	{
+		Vector<TreeNode> elements = l.getElements();
+		for (int i = 0; i < elements.size(); i++)
+			elements.set(i, ((Expression) elements.get(i)).fold(env));
+	}
+
+	/**
+	 * Does any expression of a list assign to the specified variable?
+	 * 
+	 * @param l The list of expressions
+	 * @param name The name of the variable
+	 */
+	static boolean assigns(Expressions l, AbstractSymbol name)
+	{
+		for (TreeNode t : l.getElements())
+			if (((Expression) t).assigns(name))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Is the expression an Int, Bool or String constant?
+	 */
+	static boolean isConstant(Object e)
+	{
+		return e instanceof int_const && ((int_const) e).getValue() != null
+				|| e instanceof bool_const || e instanceof string_const;
+	}
+
+	/**
+	 * Is the expression a constant of the specified type?
+	 */
+	static boolean isConstant(Expression e, AbstractSymbol type)
+	{
+		return isConstant(e) && getType(e).equals(type);
+	}
+
+	/**
+	 * Returns the value of an Int constant or null if the expression is not
+	 * one
+	 */
+	static Integer intValue(Expression e)
+	{
+		return e instanceof int_const ? ((int_const) e).getValue() : null;
+	}
+
+	/**
+	 * Returns the value of a Bool constant or null if the expression is not
+	 * one
+	 */
+	static Boolean boolValue(Expression e)
+	{
+		return e instanceof bool_const ? ((bool_const) e).getValue() : null;
+	}
+
+	/**
+	 * Returns the value of a String constant or null if the expression is not
+	 * one
+	 */
+	static String stringValue(Expression e)
+	{
+		return e instanceof string_const ? ((string_const) e).getValue()
+				: null;
+	}
+
+	/**
+	 * Returns the value of a constant
+	 */
+	static Object getValue(Expression e)
+	{
+		if (e instanceof int_const)
+			return intValue(e);
+		if (e instanceof bool_const)
+			return boolValue(e);
+		return stringValue(e);
+	}
+
+	/**
+	 * Creates an Int constant
+	 */
+	static Expression intConst(int lineNumber, int value)
+	{
+		return new int_const(lineNumber, AbstractTable.inttable.addInt(value))
+				.set_type(TreeConstants.Int);
+	}
+
+	/**
+	 * Creates an Int constant if the value fits in an Int. Returns null
+	 * otherwise, as the operation would overflow at runtime.
+	 */
+	static Expression intConst(int lineNumber, long value)
+	{
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+			return null;
+		return intConst(lineNumber, (int) value);
+	}
+
+	/**
+	 * Creates a Bool constant
+	 */
+	static Expression boolConst(int lineNumber, boolean value)
+	{
+		return new bool_const(lineNumber, Boolean.valueOf(value))
+				.set_type(TreeConstants.Bool);
+	}
+
+	/**
+	 * Creates a String constant
+	 */
+	static Expression stringConst(int lineNumber, String value)
+	{
+		return new string_const(lineNumber,
+				AbstractTable.stringtable.addString(value))
+				.set_type(TreeConstants.Str);
+	}
+
+	/**
+	 * Creates a copy of a constant for a use of a variable bound to it
+	 */
+	static Expression copy(Expression e, int lineNumber)
+	{
+		if (e instanceof int_const)
+			return intConst(lineNumber, intValue(e).intValue());
+		if (e instanceof bool_const)
+			return boolConst(lineNumber, boolValue(e).booleanValue());
+		return stringConst(lineNumber, stringValue(e));
+	}
+
+	/**
+	 * Returns the type of a folded expression
+	 */
+	static AbstractSymbol getType(Expression e)
+	{
+		try
+		{
+			return e.get_type();
+		}
+		catch (PossibleNullDereferenceException ex)
+		{
+			// Semantic analysis sets the type of every expression
+			Utilities.fatalError("Expression without a type at line "
+					+ e.getLineNumber());
+			return null;
+		}
+	}
+}
@@ -5,6 +5,7 @@ package cool.parser;
 
 import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
 
@@ -12,6 +13,14 @@ import cool.semant.ObjectTypeEnvironment;
 import cool.semant.SemantError;
 
 import cool.cgen.CgenLookupTable;
+import cool.cgen.CgenSupport;
+import cool.cgen.DispatchRecord;
+import cool.cgen.InstructionList;
+import cool.cgen.RapidTypeAnalysis;
+import cool.cgen.StringSymbol;
+
+import java.util.Collections;
+import java.util.List;
 
 import java.io.PrintStream;
 
@@ -54,14 +63,371 @@ public abstract class Expression extends TreeNode
 			UnresolvableSelfTypeException;
 
 	/**
+	 * Generates code for this expression which leaves a reference to its value
+	 * in ACC. The self object is held in SELF throughout the body of a method
+	 * and is preserved by the code of every expression.
 	 * 
-	 * @param n
 	 * @param c Represents the class in which this expression lies
-	 * @param m Represents the method in which this expression lies
-	 * @param env
-	 * @param s
+	 * @param nAR The number of items on the current activation record
+	 * @param tbl The lookup table
+	 * @param s The list to which the code is added
+	 * @return The number of items on the current activation record
 	 */
 	public abstract int code(class_ c, int nAR, CgenLookupTable tbl,
-			PrintStream s);
+			InstructionList s);
+
+	/**
+	 * Generates code for an Int expression which leaves the raw value of the
+	 * expression in ACC instead of a reference to an Int object holding it.
+	 * 
+	 * By default the expression is coded as usual and the value is fetched
+	 * from the resulting object. The arithmetic expressions override this to
+	 * compute their values without creating the intermediate Int objects. An
+	 * Int object is then created only for a value which escapes into a
+	 * variable, attribute, argument or return value, by code().
+	 * 
+	 * @param c Represents the class in which this expression lies
+	 * @param nAR The number of items on the current activation record
+	 * @param tbl The lookup table
+	 * @param s The list to which the code is added
+	 * @return The number of items on the current activation record
+	 */
+	public int codeUnboxed(class_ c, int nAR, CgenLookupTable tbl,
+			InstructionList s)
+	{
+		nAR = code(c, nAR, tbl, s);
+		CgenSupport.emitFetchInt(CgenSupport.ACC, CgenSupport.ACC, s);
+		return nAR;
+	}
+
+	/**
+	 * Generates code for a Bool expression in a branch context, i.e., code
+	 * which jumps to the specified label if the expression evaluates to the
+	 * specified value and falls through otherwise. No Bool object is created
+	 * for the value of the expression.
+	 * 
+	 * By default the expression is coded as usual and the value of the
+	 * resulting object is tested. The comparisons, 'not', 'isvoid' and the
+	 * boolean constants override this to branch on the test directly.
+	 * 
+	 * @param c Represents the class in which this expression lies
+	 * @param nAR The number of items on the current activation record
+	 * @param tbl The lookup table
+	 * @param jumpIf The value of the expression on which to jump
+	 * @param label The label to jump to
+	 * @param s The list to which the code is added
+	 * @return The number of items on the current activation record
+	 */
+	public int codeBranch(class_ c, int nAR, CgenLookupTable tbl,
+			boolean jumpIf, int label, InstructionList s)
+	{
+		nAR = code(c, nAR, tbl, s);
+		CgenSupport.emitFetchBool(CgenSupport.ACC, CgenSupport.ACC, s);
+		if (jumpIf)
+			CgenSupport.emitBne(CgenSupport.ACC, CgenSupport.ZERO, label, s);
+		else
+			CgenSupport.emitBeqz(CgenSupport.ACC, label, s);
+		return nAR;
+	}
+
+	/**
+	 * Generates code which loads the boolean constant for the value of a Bool
+	 * expression into ACC, using the code of the expression in the branch
+	 * context
+	 * 
+	 * @param c Represents the class in which this expression lies
+	 * @param nAR The number of items on the current activation record
+	 * @param tbl The lookup table
+	 * @param s The list to which the code is added
+	 * @return The number of items on the current activation record
+	 */
+	protected int codeBoolFromBranch(class_ c, int nAR, CgenLookupTable tbl,
+			InstructionList s)
+	{
+		int falseLabel = CgenSupport.getLabel();
+		int endLabel = CgenSupport.getLabel();
+
+		nAR = codeBranch(c, nAR, tbl, false, falseLabel, s);
+
+		s.comment("True. Set return value to the boolean constant, true");
+		CgenSupport.emitLoadAddress(CgenSupport.ACC,
+				CgenSupport.BOOLCONST_PREFIX + CgenSupport.BOOL_TRUE, s);
+		CgenSupport.emitBranch(endLabel, s);
+
+		s.comment("False. Set return value to the boolean constant, false");
+		CgenSupport.emitLabelDef(falseLabel, s);
+		CgenSupport.emitLoadAddress(CgenSupport.ACC,
+				CgenSupport.BOOLCONST_PREFIX + CgenSupport.BOOL_FALSE, s);
+		CgenSupport.emitLabelDef(endLabel, s);
+		return nAR;
+	}
+
+	/**
+	 * Generates code to evaluate the arguments of a dispatch and push them on
+	 * the stack in order
+	 * 
+	 * @param actual The arguments
+	 * @param c Represents the class in which this expression lies
+	 * @param nAR The number of items on the current activation record
+	 * @param tbl The lookup table
+	 * @param s The list to which the code is added
+	 * @return The number of items on the current activation record
+	 */
+	protected static int codeArguments(Expressions actual, class_ c, int nAR,
+			CgenLookupTable tbl, InstructionList s)
+	{
+		s.comment("Push Arguments");
+		for (TreeNode t : actual.getElements())
+		{
+			Expression ex = (Expression) t;
+			s.comment("Evaluate actual argument and get it in in $a0");
+			nAR = ex.code(c, nAR, tbl, s);
+			s.blank();
+
+			s.comment("Push argument in Stack");
+			nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
+			s.blank();
+		}
+		return nAR;
+	}
+
+	/**
+	 * Generates code to inline the body of a method in place of a dispatch to
+	 * it. The arguments are pushed as for a call and the invoking object is
+	 * evaluated into ACC, and checked for void unless it is self. The body is
+	 * then coded in the class which defines the method, with the formals bound
+	 * to the pushed arguments and the invoking object in SELF. SELF is saved
+	 * around the body unless the invoking object is self.
+	 * 
+	 * @param r The dispatch record of the inlined method
+	 * @param receiver The invoking object
+	 * @param actual The arguments
+	 * @param c Represents the class in which the dispatch lies
+	 * @param nAR The number of items on the current activation record
+	 * @param tbl The lookup table
+	 * @param s The list to which the code is added
+	 * @return The number of items on the current activation record
+	 */
+	protected int codeInline(DispatchRecord r, Expression receiver,
+			Expressions actual, class_ c, int nAR, CgenLookupTable tbl,
+			InstructionList s)
+	{
+		tbl.countInlined();
+		s.comment("Inlined dispatch to " + r.getClass_().getName() + "."
+				+ r.getMethod().getName());
+		boolean onSelf = receiver instanceof object
+				&& ((object) receiver).isSelf();
+		if (!onSelf)
+		{
+			s.comment("Save self");
+			nAR = CgenSupport.emitPush(CgenSupport.SELF, nAR, s);
+		}
+
+		nAR = codeArguments(actual, c, nAR, tbl, s);
+
+		s.comment("Evaluate invoking object and Get it in $a0");
+		nAR = receiver.code(c, nAR, tbl, s);
+
+		if (!onSelf)
+		{
+			int notVoidLabel = CgenSupport.getLabel();
+			s.comment("Abort if the invoking object is void");
+			CgenSupport.emitFetchClassTag(CgenSupport.T1, CgenSupport.ACC, s);
+			CgenSupport.emitBgti(CgenSupport.T1, CgenSupport.VOID_CLASSTAG,
+					notVoidLabel, s);
+			CgenSupport.emitLoadString(CgenSupport.ACC,
+					(StringSymbol) c.getFilename(), s);
+			CgenSupport.emitLoadImm(CgenSupport.T1, lineNumber, s);
+			CgenSupport.emitJal("_dispatch_abort", s);
+			CgenSupport.emitLabelDef(notVoidLabel, s);
+
+			s.comment("The invoking object is self in the inlined body");
+			CgenSupport.emitMove(CgenSupport.SELF, CgenSupport.ACC, s);
+		}
+
+		nAR = r.getMethod().codeInline(tbl.toClass_(r.getClass_().getName()),
+				nAR, tbl, s);
+
+		s.comment("Pop the arguments");
+		CgenSupport.emitPopAR(actual.getLength(), s);
+		nAR -= actual.getLength();
+		if (!onSelf)
+		{
+			s.comment("Restore self");
+			nAR = CgenSupport.emitPop(CgenSupport.SELF, nAR, s);
+		}
+		return nAR;
+	}
+
+	/**
+	 * Generates code to evaluate the raw values of the two Int operands of a
+	 * binary expression. The value of the first operand is left in T1 and that
+	 * of the second in ACC
+	 * 
+	 * @param e1 The first operand
+	 * @param e2 The second operand
+	 * @param c Represents the class in which this expression lies
+	 * @param nAR The number of items on the current activation record
+	 * @param tbl The lookup table
+	 * @param s The list to which the code is added
+	 * @return The number of items on the current activation record
+	 */
+	protected static int codeUnboxedOperands(Expression e1, Expression e2,
+			class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
+	{
+		s.comment("Evaluate the value of the 1st operand into $a0");
+		nAR = e1.codeUnboxed(c, nAR, tbl, s);
+
+		String reg = tbl.allocateTemporary();
+		if (reg != null)
+		{
+			s.comment("Hold it in " + reg);
+			CgenSupport.emitMove(reg, CgenSupport.ACC, s);
+
+			s.comment("Evaluate the value of the 2nd operand into $a0");
+			nAR = e2.codeUnboxed(c, nAR, tbl, s);
+
+			s.comment("Move the value of the 1st operand into $t1");
+			CgenSupport.emitMove(CgenSupport.T1, reg, s);
+			tbl.freeRegister(reg);
+			return nAR;
+		}
 
+		s.comment("Save it");
+		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
+
+		s.comment("Evaluate the value of the 2nd operand into $a0");
+		nAR = e2.codeUnboxed(c, nAR, tbl, s);
+
+		s.comment("Restore the value of the 1st operand into $t1");
+		nAR = CgenSupport.emitPop(CgenSupport.T1, nAR, s);
+		return nAR;
+	}
+
+	/**
+	 * Returns the number of registers demanded by codeUnboxedOperands(). Within
+	 * a loop the value of the 1st operand is held in a register while the 2nd
+	 * operand is evaluated
+	 */
+	protected static int getOperandsRegisterDemand(Expression e1,
+			Expression e2, class_ c, CgenLookupTable tbl)
+	{
+		return Math.max(e1.getRegisterDemand(c, tbl),
+				(tbl.isInLoop() ? 1 : 0) + e2.getRegisterDemand(c, tbl));
+	}
+
+	/**
+	 * Returns the number of registers demanded by the code of this expression
+	 * for its local variables and temporaries. A method saves as many
+	 * registers on entry.
+	 * 
+	 * By default an expression demands no registers of its own, only those of
+	 * its subexpressions. The expressions which allocate registers override
+	 * this.
+	 * 
+	 * @param c The class in which this expression lies
+	 * @param tbl The lookup table
+	 */
+	public int getRegisterDemand(class_ c, CgenLookupTable tbl)
+	{
+		int demand = 0;
+		for (Expression e : getSubexpressions())
+			demand = Math.max(demand, e.getRegisterDemand(c, tbl));
+		return demand;
+	}
+
+	/**
+	 * Returns the number of registers demanded by the body of a method if it
+	 * is inlined, as its body then uses the registers of the caller. Returns
+	 * 0 otherwise.
+	 * 
+	 * @param r The dispatch record of the method invoked, or null if the
+	 *        method is not known at compile time
+	 * @param tbl The lookup table
+	 */
+	protected static int getInlineRegisterDemand(DispatchRecord r,
+			CgenLookupTable tbl)
+	{
+		if (r == null || !r.getMethod().isInlinable())
+			return 0;
+		return r.getMethod().getRegisterDemand(
+				tbl.toClass_(r.getClass_().getName()), tbl);
+	}
+
+	/**
+	 * Folds the constant subexpressions of this expression and then this
+	 * expression itself, if it is constant. A variable bound to a constant is
+	 * replaced by the constant.
+	 * 
+	 * By default an expression is left as it is. The expressions with
+	 * subexpressions override this to fold them.
+	 * 
+	 * @param env Maps the let variables in scope which are bound to constants
+	 *        to the constants
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		return this;
+	}
+
+	/**
+	 * Does this expression assign to the specified variable? Assignments to
+	 * the name in any scope are considered.
+	 * 
+	 * @param name The name of the variable
+	 */
+	public boolean assigns(AbstractSymbol name)
+	{
+		return false;
+	}
+
+	/**
+	 * Returns the subexpressions of this expression in the order of their
+	 * evaluation
+	 */
+	public List<Expression> getSubexpressions()
+	{
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Returns the number of nodes in this expression
+	 */
+	public int size()
+	{
+		int n = 1;
+		for (Expression e : getSubexpressions())
+			n += e.size();
+		return n;
+	}
+
+	/**
+	 * Records the classes instantiated and the methods invoked by this
+	 * expression in the reachability analysis.
+	 * 
+	 * By default an expression instantiates and invokes nothing of its own.
+	 * The dispatches and 'new' override this.
+	 * 
+	 * @param c The class in which this expression lies
+	 * @param rta The analysis
+	 */
+	public void analyze(class_ c, RapidTypeAnalysis rta)
+	{
+		for (Expression e : getSubexpressions())
+			e.analyze(c, rta);
+	}
+
+	/**
+	 * Does this expression contain a dispatch?
+	 */
+	public boolean containsDispatch()
+	{
+		if (this instanceof dispatch || this instanceof static_dispatch)
+			return true;
+		for (Expression e : getSubexpressions())
+			if (e.containsDispatch())
+				return true;
+		return false;
+	}
 }
@@ -5,6 +5,7 @@ package cool.parser;
 
 import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -13,9 +14,12 @@ import cool.semant.ObjectTypeEnvironment;
 import cool.semant.SemantError;
 import cool.semant.SemantUtil;
 
-import cool.cgen.AttributeRecord;
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
+
+import java.util.Arrays;
+import java.util.List;
 
 import java.io.PrintStream;
 
@@ -89,8 +93,8 @@ public class assign extends Expression
 		// Check if the LHS is compatible with the RHS
 		AbstractSymbol tName = SemantUtil.typeLookup(name, o, m, c, err);
 		if (!(tName == TreeConstants.SELF_TYPE && expr.get_type() == TreeConstants.SELF_TYPE))
-			if (!o.getSuperTypes(SemantUtil.getResolvedType(expr.get_type(), c))
-					.contains(tName))
+			if (!o.isSubtype(SemantUtil.getResolvedType(expr.get_type(), c),
+					tName))
 			{
 				// getResolvedType for '<name> <- self'
 				err.semantError(c)
@@ -111,83 +115,55 @@ public class assign extends Expression
 	/**
 	 * Generates code for the assign expression.
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 	{
-		s.println("# Start - Assign expression");
-		s.println();
-
-		s.println("# Save self object");
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println();
+		s.comment("Start - Assign expression");
+		s.blank();
 
-		s.println("# Evaluate the RHS and get the reference in $a0");
+		s.comment("Evaluate the RHS and get the reference in $a0");
 		nAR = expr.code(c, nAR, tbl, s);
-		s.println();
+		s.blank();
 
-		s.println("# Get the address of the identifier");
+		s.comment("Get the address of the identifier");
 		if (tbl.lookup(name) != null)
 		{
-			s.println("# The identifier is a local variable. Store relative to $fp");
-			CgenSupport.emitStore(CgenSupport.ACC, (Integer) tbl.lookup(name),
-					CgenSupport.FP, s);
-
-			s.println("# Discard stored self object");
-			nAR = CgenSupport.emitPop(CgenSupport.T1, nAR, s);
+			s.comment("The identifier is a local variable");
+			CgenSupport.emitStoreLocal(CgenSupport.ACC, tbl.lookup(name), s);
 		}
 		else
 		{
-			s.println("# The identifier is an object attribute");
-
-			s.println("# Temporarily cache the result");
-			CgenSupport.emitMove(CgenSupport.T1, CgenSupport.ACC, s);
-			s.println();
-
-			s.println("# Restore the self object");
-			nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-			s.println();
-
-			s.println("# Save the RHS");
-			nAR = CgenSupport.emitPush(CgenSupport.T1, nAR, s);
-
-			s.println("# Class tag of invoking object");
-			nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-			CgenSupport.emitFetchClassTag(CgenSupport.ACC, CgenSupport.ACC, s);
-
-			int aLabel[] = new int[tbl.getCandidateAttributes(name).size()];
-			int endLabel = CgenSupport.getLabel();
-			int nLabel = 0;
-			for (AttributeRecord a : tbl.getCandidateAttributes(name))
-			{
-				aLabel[nLabel] = CgenSupport.getLabel();
-				CgenSupport.emitLoadImm(CgenSupport.T1, a.getClass_()
-						.getClassTag(), s);
-				CgenSupport.emitBeq(CgenSupport.ACC, CgenSupport.T1,
-						aLabel[nLabel], s);
-				nLabel++;
-			}
+			s.comment("The identifier is an object attribute");
+			s.comment("Store the result relative to the self object");
+			CgenSupport.emitStore(CgenSupport.ACC,
+					tbl.getAttributeOffset(c.getName(), name),
+					CgenSupport.SELF, s);
+		}
+		s.comment("End of assign expression");
+		s.blank();
+		return nAR;
+	}
 
-			int nItems = nAR;
-			nLabel = 0;
-			for (AttributeRecord a : tbl.getCandidateAttributes(name))
-			{
+	public List<Expression> getSubexpressions()
+	{
+		return Arrays.asList(expr);
+	}
 
-				nAR = nItems;
-				CgenSupport.emitLabelDef(aLabel[nLabel], s);
-				nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-				nAR = CgenSupport.emitPop(CgenSupport.T1, nAR, s);
-				CgenSupport.emitStore(CgenSupport.T1, a.getOffset(),
-						CgenSupport.ACC, s);
-				CgenSupport.emitMove(CgenSupport.ACC, CgenSupport.T1, s);
+	/**
+	 * Folds the assigned expression
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		expr = expr.fold(env);
+		return this;
+	}
 
-				CgenSupport.emitBranch(endLabel, s);
-				nLabel++;
-			}
-			CgenSupport.emitLabelDef(endLabel, s);
-		}
-		s.println("# End of assign expression");
-		s.println();
-		return nAR;
+	public boolean assigns(AbstractSymbol name)
+	{
+		return this.name.equals(name) || expr.assigns(name);
 	}
 }
@@ -102,15 +102,20 @@ public class attr extends Feature
 							+ " not defined.");
 
 		// Should not override attributes of supertypes
-		for (AbstractSymbol cName : o.getSuperTypes(c.getName()))
-			if (!cName.equals(c.getName())
-					&& o.toClass_(cName).containsAttr(name, o, err))
-				err.semantError(c).println(
-						"Attribute " + name
-								+ " is an attribute of an inherited class.");
+		if (o.lookupAttr(c.getParent(), name) != null)
+			err.semantError(c).println(
+					"Attribute " + name
+							+ " is an attribute of an inherited class.");
 
 		// validate the initializer
 		init.validateAndSetType(o, dummy, c, err);
 	}
 
+	/**
+	 * Folds the constant expressions of the initializer of the attribute
+	 */
+	public void fold()
+	{
+		init = ConstantFolder.fold(init);
+	}
 }
\ No newline at end of file
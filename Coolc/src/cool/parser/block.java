@@ -1,6 +1,8 @@
 package cool.parser;
 
+import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
 
@@ -9,9 +11,13 @@ import cool.semant.SemantError;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Vector;
 
 /**
  * Defines AST constructor 'block'.
@@ -72,13 +78,13 @@ public class block extends Expression
 	 * in programming assignment 5. (You may add or remove parameters as
 	 * you wish.)
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 
 	{
-		s.println("# Start of block");
-		s.println();
+		s.comment("Start of block");
+		s.blank();
 
 		int n = 0;
 		for (@SuppressWarnings("unused")
@@ -88,28 +94,51 @@ public class block extends Expression
 		Iterator<TreeNode> i = body.getElements().iterator();
 		for (; n > 1; n--)
 		{
-			s.println("# Save self object before evaluating this expression.");
-			s.println("# Will need it to evaluate the subsequent expressions");
-			nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-			s.println();
-
-			s.println("# Evaluate the expression and "
+			s.comment("Evaluate the expression and "
 					+ "get the reference in $a0");
 			nAR = ((Expression) (i.next())).code(c, nAR, tbl, s);
-			s.println();
-
-			s.println("# Retrieve self object before evaluating the next "
-					+ "expression");
-			nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-			s.println();
+			s.blank();
 		}
-		s.println("# Evaluate the last expression and "
+		s.comment("Evaluate the last expression and "
 				+ "get the reference in $a0");
 		nAR = ((Expression) (i.next())).code(c, nAR, tbl, s);
-		s.println();
+		s.blank();
 
-		s.println("# End of block");
-		s.println();
+		s.comment("End of block");
+		s.blank();
 		return nAR;
 	}
+
+	public List<Expression> getSubexpressions()
+	{
+		List<Expression> l = new ArrayList<Expression>();
+		for (TreeNode t : body.getElements())
+			l.add((Expression) t);
+		return l;
+	}
+
+	/**
+	 * Folds the expressions of the block. The constants other than the last
+	 * expression have no effect and are dropped
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		ConstantFolder.fold(body, env);
+
+		Vector<TreeNode> elements = body.getElements();
+		for (int i = elements.size() - 2; i >= 0; i--)
+			if (ConstantFolder.isConstant(elements.get(i)))
+				elements.remove(i);
+		if (elements.size() == 1)
+			return (Expression) elements.get(0);
+		return this;
+	}
+
+	public boolean assigns(AbstractSymbol name)
+	{
+		return ConstantFolder.assigns(body, name);
+	}
 }
@@ -12,6 +12,7 @@ import cool.semant.SemantError;
 import cool.cgen.BoolConst;
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
 
 import java.io.PrintStream;
 
@@ -65,14 +66,33 @@ public class bool_const extends Expression
 	 * Generates code for this expression. This method method is provided
 	 * to you as an example of code generation.
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 
 	{
-		s.println("# Boolean constant");
+		s.comment("Boolean constant");
 		CgenSupport.emitLoadBool(CgenSupport.ACC, new BoolConst(val), s);
-		s.println();
+		s.blank();
 		return nAR;
 	}
+
+	/**
+	 * Generates code which jumps to the label if the constant is of the
+	 * specified value
+	 * 
+	 * @param s the list to which the code is added
+	 * */
+	public int codeBranch(class_ c, int nAR, CgenLookupTable tbl,
+			boolean jumpIf, int label, InstructionList s)
+	{
+		if (val.booleanValue() == jumpIf)
+			CgenSupport.emitBranch(label, s);
+		return nAR;
+	}
+
+	Boolean getValue()
+	{
+		return val;
+	}
 }
\ No newline at end of file
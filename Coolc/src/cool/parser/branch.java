@@ -5,6 +5,7 @@ package cool.parser;
 
 import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -116,4 +117,22 @@ public class branch extends Case
 		this.name = name;
 	}
 
+	/**
+	 * Folds the expression of the branch. The branch identifier hides any
+	 * constant of the same name
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 */
+	void fold(SymbolTable env)
+	{
+		env.enterScope();
+		env.addId(name, this);
+		expr = expr.fold(env);
+		env.exitScope();
+	}
+
+	boolean assigns(AbstractSymbol id)
+	{
+		return expr.assigns(id);
+	}
 }
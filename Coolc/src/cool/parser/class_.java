@@ -12,6 +12,8 @@ import cool.semant.ObjectTypeEnvironment;
 import cool.semant.SemantError;
 
 import cool.cgen.CgenLookupTable;
+import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
 
 import java.io.PrintStream;
 
@@ -110,15 +112,7 @@ public class class_ extends Class_
 			SemantError err) throws PossibleNullDereferenceException,
 			UnresolvableSelfTypeException
 	{
-		for (AbstractSymbol supertype : o.getSuperTypes(getName()))
-			for (TreeNode t : o.toClass_(supertype).getFeatures().getElements())
-			{
-				if (t instanceof method)
-					continue;
-				if (((attr) t).getName().equals(name))
-					return true;
-			}
-		return false;
+		return o.lookupAttr(getName(), name) != null;
 	}
 
 	// look in class env
@@ -126,35 +120,19 @@ public class class_ extends Class_
 			SemantError err) throws PossibleNullDereferenceException,
 			UnresolvableSelfTypeException
 	{
-		for (AbstractSymbol supertype : o.getSuperTypes(getName()))
-			for (TreeNode t : o.toClass_(supertype).getFeatures().getElements())
-			{
-				if (t instanceof method)
-					continue;
-				attr a = (attr) t;
-				if (a.getName().equals(name))
-					return a;
-			}
-		throw new PossibleNullDereferenceException(
-				"Internal Error : getAttr : No attribute called " + name
-						+ ". Use containsAttr() first");
+		attr a = o.lookupAttr(getName(), name);
+		if (a == null)
+			throw new PossibleNullDereferenceException(
+					"Internal Error : getAttr : No attribute called " + name
+							+ ". Use containsAttr() first");
+		return a;
 	}
 
 	public boolean containsMethod(AbstractSymbol name, ObjectTypeEnvironment o,
 			SemantError err) throws PossibleNullDereferenceException,
 			UnresolvableSelfTypeException
 	{
-		for (AbstractSymbol supertype : o.getSuperTypes(getName()))
-			for (TreeNode t : o.toClass_(supertype).getFeatures().getElements())
-			{
-				if (t instanceof attr)
-					continue;
-
-				if (((method) t).getName().equals(name))
-					return true;
-
-			}
-		return false;
+		return o.lookupMethod(getName(), name) != null;
 	}
 
 	public method getMethod(AbstractSymbol name, ObjectTypeEnvironment o,
@@ -162,29 +140,12 @@ public class class_ extends Class_
 			UnresolvableSelfTypeException
 	{
 		// A redefnition overrides a method in an ancestor.
-		// Thus check for the method in this class first
-		for (TreeNode t : features.getElements())
-		{
-			if (t instanceof attr)
-				continue;
-			method m = (method) t;
-			if (m.getName().equals(name))
-				return m;
-		}
-
-		// Now check in all the supertypes
-		for (AbstractSymbol supertype : o.getSuperTypes(getName()))
-			for (TreeNode t : o.toClass_(supertype).getFeatures().getElements())
-			{
-				if (t instanceof attr)
-					continue;
-				method m = (method) t;
-				if (m.getName().equals(name))
-					return m;
-			}
-		throw new PossibleNullDereferenceException(
-				"Internal Error : getMethod : No attribute called " + name
-						+ ". Use containsMethod() first");
+		method m = o.lookupMethod(getName(), name);
+		if (m == null)
+			throw new PossibleNullDereferenceException(
+					"Internal Error : getMethod : No attribute called " + name
+							+ ". Use containsMethod() first");
+		return m;
 	}
 
 	/**
@@ -194,16 +155,31 @@ public class class_ extends Class_
 	 * @param tbl
 	 * @param s
 	 */
-	public void code(CgenLookupTable tbl, PrintStream s)
+	public void code(CgenLookupTable tbl, InstructionList s)
 	{
+		CgenSupport.setLabelNamespace(name + CgenSupport.LABEL_SUFFIX);
 		for (TreeNode t : features.getElements())
 		{
 			if (t instanceof attr)
 				continue;
 			method m = ((method) t);
+			if (!tbl.isReachable(m))
+				continue;
 			tbl.enterScope();
 			m.code(tbl.toClass_(name), tbl, s);
 			tbl.exitScope();
 		}
 	}
+
+	/**
+	 * Folds the constant expressions of the features of the class
+	 */
+	public void fold()
+	{
+		for (TreeNode t : features.getElements())
+			if (t instanceof attr)
+				((attr) t).fold();
+			else
+				((method) t).fold();
+	}
 }
@@ -3,7 +3,9 @@
  */
 package cool.parser;
 
+import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -13,6 +15,10 @@ import cool.semant.SemantError;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
+
+import java.util.Arrays;
+import java.util.List;
 
 import java.io.PrintStream;
 
@@ -65,71 +71,52 @@ public class comp extends Expression
 	}
 
 	/**
-	 * Generates code for this expression. This method is to be completed
-	 * in programming assignment 5. (You may add or remove parameters as
-	 * you wish.)
+	 * Generates code for this expression.
+	 * 
+	 * @param s the list to which the code is added
+	 * */
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
+	{
+		s.comment("Complement expression");
+		return codeBoolFromBranch(c, nAR, tbl, s);
+	}
+
+	/**
+	 * Generates code for the operand which jumps to the label on the
+	 * complement of the value
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int codeBranch(class_ c, int nAR, CgenLookupTable tbl,
+			boolean jumpIf, int label, InstructionList s)
+	{
+		return e1.codeBranch(c, nAR, tbl, !jumpIf, label, s);
+	}
+
+	public List<Expression> getSubexpressions()
+	{
+		return Arrays.asList(e1);
+	}
+
+	/**
+	 * Folds the operand. If it is a constant the expression is replaced by
+	 * its complement
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		e1 = e1.fold(env);
+
+		Boolean b = ConstantFolder.boolValue(e1);
+		if (b == null)
+			return this;
+		return ConstantFolder.boolConst(lineNumber, !b.booleanValue());
+	}
 
+	public boolean assigns(AbstractSymbol name)
 	{
-		s.println("# Complement expression");
-		s.println();
-
-		int endLabel = CgenSupport.getLabel();
-		int returnFalseLabel = CgenSupport.getLabel();
-
-		s.println("# Evaluate the operand");
-		nAR = e1.code(c, nAR, tbl, s);
-		s.println();
-
-		s.println("# Fetch the boolean value of the operand");
-		CgenSupport.emitFetchBool(CgenSupport.T1, CgenSupport.ACC, s);
-		s.println();
-
-		s.println("# Save the operand");
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("# Get the 'true' value");
-		CgenSupport.emitLoadImm(CgenSupport.ACC, CgenSupport.BOOL_TRUE, s);
-		s.println();
-
-		int nItems = nAR;
-		s.println("# If operand is true, branch to label" + returnFalseLabel);
-		CgenSupport.emitBeq(CgenSupport.T1, CgenSupport.ACC, returnFalseLabel,
-				s);
-		s.println();
-
-		s.println("# Return true branch");
-		s.println("# Restore operand");
-		nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("# Return true");
-		CgenSupport.emitLoadAddress(CgenSupport.ACC,
-				CgenSupport.BOOLCONST_PREFIX + CgenSupport.BOOL_TRUE, s);
-		CgenSupport.emitBranch(endLabel, s);
-		s.println();
-
-		nAR = nItems;
-		s.println("# Return False branch");
-		CgenSupport.emitLabelDef(returnFalseLabel, s);
-		s.println();
-
-		s.println("# Restore operand");
-		nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("# Return False");
-		CgenSupport.emitLoadAddress(CgenSupport.ACC,
-				CgenSupport.BOOLCONST_PREFIX + CgenSupport.BOOL_TRUE, s);
-		s.println();
-
-		s.println("# End of complement expression");
-		CgenSupport.emitLabelDef(endLabel, s);
-		s.println();
-		return nAR;
+		return e1.assigns(name);
 	}
 }
\ No newline at end of file
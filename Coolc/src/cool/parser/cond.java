@@ -3,7 +3,9 @@
  */
 package cool.parser;
 
+import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -14,6 +16,10 @@ import cool.semant.SemantUtil;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
+
+import java.util.Arrays;
+import java.util.List;
 
 import java.io.PrintStream;
 
@@ -94,73 +100,77 @@ public class cond extends Expression
 	 * in programming assignment 5. (You may add or remove parameters as
 	 * you wish.)
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 	{
-		s.println("# If-then-else");
-		s.println();
+		s.comment("If-then-else");
+		s.blank();
 
 		int elseLabel = CgenSupport.getLabel();
 		int endLabel = CgenSupport.getLabel();
 
-		s.println("# Save self object before evaluating predicate. ");
-		s.println("# Will need it to evaluate then-expression and else-expression");
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("# Evaluate predicate and get reference in $a0");
-		nAR = pred.code(c, nAR, tbl, s);
-		s.println();
-
-		s.println("# Fetch the bool value of the object");
-		CgenSupport.emitFetchBool(CgenSupport.ACC, CgenSupport.ACC, s);
-
-		s.println("# Get reference to 'false' constant");
-		CgenSupport.emitLoadAddress(CgenSupport.T1,
-				CgenSupport.BOOLCONST_PREFIX + CgenSupport.BOOL_FALSE, s);
-		CgenSupport.emitFetchBool(CgenSupport.T1, CgenSupport.T1, s);
-		s.println();
-
-		s.println("# The test. Did the predicate evaluate to 'false'?");
-		s.println("# If it did jump to label" + elseLabel);
-		CgenSupport.emitBeq(CgenSupport.ACC, CgenSupport.T1, elseLabel, s);
-		s.println();
+		s.comment("Evaluate predicate. If it is 'false' jump to label"
+				+ elseLabel);
+		nAR = pred.codeBranch(c, nAR, tbl, false, elseLabel, s);
+		s.blank();
 
 		// Save the number of items in the current AR
 		// This is needed to restore the same while generating code for the else
 		// branch
 		int nItems = nAR;
-		s.println("# If-Then Branch");
-		s.println("# Retrieve self object before evaluating the then-expr");
-		nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-		s.println();
+		s.comment("If-Then Branch");
 
-		s.println("# Evaluate the then-expr and get reference in $a0");
+		s.comment("Evaluate the then-expr and get reference in $a0");
 		nAR = then_exp.code(c, nAR, tbl, s);
-		s.println();
+		s.blank();
 
-		s.println("# End of if-then. Branch to label" + endLabel);
+		s.comment("End of if-then. Branch to label" + endLabel);
 		CgenSupport.emitBranch(endLabel, s);
-		s.println();
+		s.blank();
 
 		nAR = nItems;
-		s.println("# The else branch");
+		s.comment("The else branch");
 		CgenSupport.emitLabelDef(elseLabel, s);
-		s.println();
+		s.blank();
 
-		s.println("# Retrieve self object before evaluating the else-expr");
-		nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("# Evaluate the else-expr and get reference in $a0");
+		s.comment("Evaluate the else-expr and get reference in $a0");
 		nAR = else_exp.code(c, nAR, tbl, s);
-		s.println();
+		s.blank();
 
-		s.println("# End of if-then-else");
+		s.comment("End of if-then-else");
 		CgenSupport.emitLabelDef(endLabel, s);
-		s.println();
+		s.blank();
 		return nAR;
 	}
 
+	public List<Expression> getSubexpressions()
+	{
+		return Arrays.asList(pred, then_exp, else_exp);
+	}
+
+	/**
+	 * Folds the predicate and the branches. If the predicate is constant the
+	 * expression is replaced by the branch taken
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		pred = pred.fold(env);
+		Boolean b = ConstantFolder.boolValue(pred);
+		if (b != null)
+			return (b.booleanValue() ? then_exp : else_exp).fold(env);
+
+		then_exp = then_exp.fold(env);
+		else_exp = else_exp.fold(env);
+		return this;
+	}
+
+	public boolean assigns(AbstractSymbol name)
+	{
+		return pred.assigns(name) || then_exp.assigns(name)
+				|| else_exp.assigns(name);
+	}
 }
@@ -4,7 +4,9 @@
 package cool.parser;
 
 import cool.common.AbstractSymbol;
+import cool.common.Flags;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -16,11 +18,16 @@ import cool.semant.SemantUtil;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.CgenUtilities;
 import cool.cgen.DispatchRecord;
+import cool.cgen.InstructionList;
+import cool.cgen.RapidTypeAnalysis;
 import cool.cgen.StringSymbol;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Vector;
 
 /**
@@ -139,7 +146,7 @@ public class dispatch extends Expression
 		// Non conforming type of arguments
 		for (int i = 0; i < tActual.size(); i++)
 		{
-			if (!o.getSuperTypes(tActual.get(i)).contains(tFormal.get(i)))
+			if (!o.isSubtype(tActual.get(i), tFormal.get(i)))
 			{
 				err.semantError(c).println(
 						"In call of method " + name + ", type "
@@ -182,126 +189,162 @@ public class dispatch extends Expression
 	/**
 	 * Generates code for the 'dynamic dispatch' expression
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 	{
+		// If the method is not overridden below the static type of the
+		// invoking object, it is the only one which can be invoked. It is
+		// then inlined if small and called directly otherwise
+		DispatchRecord r = null;
+		if (Flags.cgen_optimize)
+		{
+			r = tbl.getFinalDispatchRecord(
+					CgenUtilities.getStaticType(expr, c), name);
+			if (r != null && r.getMethod().isInlinable())
+				return codeInline(r, expr, actual, c, nAR, tbl, s);
+			if (r != null)
+				tbl.countDevirtualized();
+		}
+
 		int notVoidLabel = CgenSupport.getLabel();
 
-		s.println("# Method dispatch\n");
+		s.comment("Method dispatch");
+		s.blank();
 
-		s.println("# Save FP");
+		s.comment("Save FP");
 		nAR = CgenSupport.emitPush(CgenSupport.FP, nAR, s);
-		s.println();
+		s.blank();
 
-		s.println("# Push Arguments");
-		for (TreeNode t : actual.getElements())
-		{
-			s.println("# Save self");
-			nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-			s.println();
-
-			Expression ex = (Expression) t;
-			s.println("# Evaluate actual argument and get it in in $a0");
-			nAR = ex.code(c, nAR, tbl, s);
-			s.println();
-
-			s.println("# Temporarily cache evaluated argument");
-			CgenSupport.emitMove(CgenSupport.T1, CgenSupport.ACC, s);
-			s.println();
-
-			s.println("# Restore self");
-			nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-			s.println();
-
-			s.println("# Push argument in Stack");
-			nAR = CgenSupport.emitPush(CgenSupport.T1, nAR, s);
-			s.println();
-		}
+		nAR = codeArguments(actual, c, nAR, tbl, s);
 
-		s.println("# Evaluate invoking object and Get it in $a0");
+		s.comment("Evaluate invoking object and Get it in $a0");
 		nAR = expr.code(c, nAR, tbl, s);
-		s.println();
+		s.blank();
 
-		s.println("# Save it");
+		s.comment("Save it");
 		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println();
+		s.blank();
 
-		s.println("# Need to check if the invoking object is void");
-		s.println("# Fetch its classtag");
+		s.comment("Need to check if the invoking object is void");
+		s.comment("Fetch its classtag");
 		CgenSupport.emitFetchClassTag(CgenSupport.ACC, CgenSupport.ACC, s);
-		s.println("# Get the classtag of void");
+		s.comment("Get the classtag of void");
 		CgenSupport.emitLoadImm(CgenSupport.T1, CgenSupport.VOID_CLASSTAG, s);
-		s.println("# The test. Is the invoking object not void?");
-		s.println("# If yes, branch to label" + notVoidLabel);
+		s.comment("The test. Is the invoking object not void?");
+		s.comment("If yes, branch to label" + notVoidLabel);
 		CgenSupport.emitBne(CgenSupport.ACC, CgenSupport.T1, notVoidLabel, s);
-		s.println("# Else, invoking object is void.");
+		s.comment("Else, invoking object is void.");
 
-		s.println("# Void ");
+		s.comment("Void ");
 		int nItems = nAR; // Incomplete : Causes infinite looping in GC
 		nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
 		CgenSupport.emitLoadString(CgenSupport.ACC,
 				(StringSymbol) c.getFilename(), s);
-		CgenSupport.emitLoadImm(CgenSupport.T1, 1, s);
+		CgenSupport.emitLoadImm(CgenSupport.T1, lineNumber, s);
 		CgenSupport.emitJal("_dispatch_abort", s);
 		nAR = CgenSupport.emitPop(CgenSupport.FP, nAR, s);
 		nAR = nItems; // Incomplete: Causes infinite looping in GC
 
-		s.println("# Not void");
+		s.comment("Not void");
 		CgenSupport.emitLabelDef(notVoidLabel, s);
-		s.println("# Restore the invoking object");
+		s.comment("Restore the invoking object");
 		nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-		s.println();
-		s.println("# Determine the dispatch based on the "
-				+ "type of the self object");
-		s.println();
-		s.println("# Save the invoking object");
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println("# Get the class tag of the invoking object");
-		CgenSupport.emitFetchClassTag(CgenSupport.ACC, CgenSupport.ACC, s);
-		Integer label[] = new Integer[tbl.nDispatchCandidates(name)];
-		int k = 0;
-		for (DispatchRecord d : tbl.getDispatchCandidates(name))
+		s.blank();
+		if (r != null)
 		{
-			s.println("# Class tag : " + d.getClassTag());
-			CgenSupport.emitLoadImm(CgenSupport.T1, d.getClassTag(), s);
-			label[k] = CgenSupport.getLabel();
-			CgenSupport.emitBeq(CgenSupport.ACC, CgenSupport.T1, label[k], s);
-			k++;
+			s.comment("Only one method can be invoked. Call it directly");
+			CgenSupport.emitJal(r.getClass_().getName(), name, s);
+			s.blank();
 		}
-		s.println();
-
-		nItems = nAR;
-		int dispatchLabel = CgenSupport.getLabel();
-		int j = 0;
-		for (DispatchRecord d : tbl.getDispatchCandidates(name))
+		else
 		{
-			nAR = nItems;
-			// s.println("# Dispatch for " + d.getClass_().getName() + "." +
-			// name);
-			CgenSupport.emitLabelDef(label[j], s);
-			s.println("# Restore the invoking object");
-			nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-			s.println("# Dispatch table of invoking object");
+			s.comment("Dispatch table of invoking object");
 			CgenSupport.emitFetchDispTab(CgenSupport.T1, CgenSupport.ACC, s);
-			s.println("# Address of dynamic dispatch");
-			CgenSupport.emitLoad(CgenSupport.T1, d.getOffset(), CgenSupport.T1,
-					s);
-			CgenSupport.emitBranch(dispatchLabel, s);
-			j++;
+			s.comment("Address of dynamic dispatch. The method is at the "
+					+ "same offset in the dispatch tables of the static type "
+					+ "and all of its subclasses");
+			CgenSupport.emitLoad(CgenSupport.T1, tbl.getMethodOffset(
+					CgenUtilities.getStaticType(expr, c), name),
+					CgenSupport.T1, s);
+			s.blank();
+
+			s.comment("Dispatch");
+			CgenSupport.emitJalr(CgenSupport.T1, s);
+			s.blank();
 		}
-		CgenSupport.emitLabelDef(dispatchLabel, s);
-
-		s.println("# Dispatch");
-		CgenSupport.emitJalr(CgenSupport.T1, s);
-		s.println();
 
 		// The arguments of this AR will be popped by the
 		// callee
 		nAR -= actual.getLength();
-		s.println("# Restore FP");
+		s.comment("Restore FP");
 		nAR = CgenSupport.emitPop(CgenSupport.FP, nAR, s);
-		s.println();
+		s.blank();
 		return nAR;
 	}
+
+	public List<Expression> getSubexpressions()
+	{
+		List<Expression> l = new ArrayList<Expression>();
+		l.add(expr);
+		for (TreeNode t : actual.getElements())
+			l.add((Expression) t);
+		return l;
+	}
+
+	public int getRegisterDemand(class_ c, CgenLookupTable tbl)
+	{
+		return Math.max(super.getRegisterDemand(c, tbl),
+				getInlineRegisterDemand(tbl.getFinalDispatchRecord(
+						CgenUtilities.getStaticType(expr, c), name), tbl));
+	}
+
+	public void analyze(class_ c, RapidTypeAnalysis rta)
+	{
+		super.analyze(c, rta);
+		rta.dispatch(CgenUtilities.getStaticType(expr, c), name);
+	}
+
+	/**
+	 * Folds the invoking expression and the arguments. The String methods
+	 * invoked on constants with constant arguments are evaluated
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		expr = expr.fold(env);
+		ConstantFolder.fold(actual, env);
+
+		String str = ConstantFolder.stringValue(expr);
+		if (str == null)
+			return this;
+		Vector<TreeNode> args = actual.getElements();
+		if (name.equals(TreeConstants.length) && args.isEmpty())
+			return ConstantFolder.intConst(lineNumber, str.length());
+		if (name.equals(TreeConstants.concat) && args.size() == 1)
+		{
+			String arg = ConstantFolder.stringValue((Expression) args.get(0));
+			if (arg != null)
+				return ConstantFolder.stringConst(lineNumber, str + arg);
+		}
+		if (name.equals(TreeConstants.substr) && args.size() == 2)
+		{
+			Integer i = ConstantFolder.intValue((Expression) args.get(0));
+			Integer l = ConstantFolder.intValue((Expression) args.get(1));
+			// An out of range substring is left to abort at runtime
+			if (i != null && l != null && i.intValue() >= 0
+					&& l.intValue() >= 0
+					&& i.longValue() + l.longValue() <= str.length())
+				return ConstantFolder.stringConst(lineNumber, str.substring(
+						i.intValue(), i.intValue() + l.intValue()));
+		}
+		return this;
+	}
+
+	public boolean assigns(AbstractSymbol name)
+	{
+		return expr.assigns(name) || ConstantFolder.assigns(actual, name);
+	}
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ package cool.parser;
 
 import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -14,8 +15,12 @@ import cool.semant.SemantError;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.CgenUtilities;
+import cool.cgen.InstructionList;
 
 import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Vector;
 
 /**
@@ -89,53 +94,47 @@ public class eq extends Expression
 	/**
 	 * Generates code for 'eq' expression.
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 
 	{
+		if (comparesInts(c))
+		{
+			s.comment("'=' expression on Ints");
+			return codeBoolFromBranch(c, nAR, tbl, s);
+		}
+
 		int trueLabel = CgenSupport.getLabel();
 		int endLabel = CgenSupport.getLabel();
 
-		s.println("# '=' expression");
-
-		s.println("# Save self object before evaluating the LHS.");
-		s.println("# Will need it while evaluating the RHS");
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println();
+		s.comment("'=' expression");
 
-		s.println("# Evaluate the 1st operand and get reference in $a0");
+		s.comment("Evaluate the 1st operand and get reference in $a0");
 		nAR = e1.code(c, nAR, tbl, s);
-		s.println();
+		s.blank();
 
-		s.println("# Temporarily cache the 1st operand");
-		CgenSupport.emitMove(CgenSupport.T1, CgenSupport.ACC, s);
-
-		s.println("# Restore self object to evaluate the 2nd operand");
-		nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("# Save the first operand");
-		nAR = CgenSupport.emitPush(CgenSupport.T1, nAR, s);
-		s.println();
+		s.comment("Save the first operand");
+		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
+		s.blank();
 
-		s.println("# Evaluate the 2nd operand and get reference in $a0");
+		s.comment("Evaluate the 2nd operand and get reference in $a0");
 		nAR = e2.code(c, nAR, tbl, s);
-		s.println();
+		s.blank();
 
-		s.println("# Move 2nd operand into $t2 to do the equality testing");
+		s.comment("Move 2nd operand into $t2 to do the equality testing");
 		CgenSupport.emitMove(CgenSupport.T2, CgenSupport.ACC, s);
-		s.println();
+		s.blank();
 
-		s.println("# Restore 1st operand into $t1 to do the equality testing");
+		s.comment("Restore 1st operand into $t1 to do the equality testing");
 		nAR = CgenSupport.emitPop(CgenSupport.T1, nAR, s);
-		s.println();
-		s.println("# Are both operands the same object?. If yes go to label"
+		s.blank();
+		s.comment("Are both operands the same object?. If yes go to label"
 				+ trueLabel);
 		CgenSupport.emitBeq(CgenSupport.T1, CgenSupport.T2, trueLabel, s);
-		s.println();
+		s.blank();
 
-		s.println("# equality test");
+		s.comment("equality test");
 		CgenSupport.emitLoadAddress(CgenSupport.ACC,
 				CgenSupport.BOOLCONST_PREFIX + CgenSupport.BOOL_TRUE, s);
 		CgenSupport.emitLoadAddress(CgenSupport.A1,
@@ -143,7 +142,7 @@ public class eq extends Expression
 		CgenSupport.emitJal("equality_test", s);
 		CgenSupport.emitBranch(endLabel, s);
 
-		s.println("# True Label. Return true");
+		s.comment("True Label. Return true");
 		CgenSupport.emitLabelDef(trueLabel, s);
 		CgenSupport.emitLoadAddress(CgenSupport.ACC,
 				CgenSupport.BOOLCONST_PREFIX + CgenSupport.BOOL_TRUE, s);
@@ -152,4 +151,71 @@ public class eq extends Expression
 		return nAR;
 	}
 
+	/**
+	 * Generates code for this expression in the branch context. Ints are
+	 * compared by their values. Other operands are compared as usual
+	 * 
+	 * @param s the list to which the code is added
+	 * */
+	public int codeBranch(class_ c, int nAR, CgenLookupTable tbl,
+			boolean jumpIf, int label, InstructionList s)
+	{
+		if (!comparesInts(c))
+			return super.codeBranch(c, nAR, tbl, jumpIf, label, s);
+
+		nAR = codeUnboxedOperands(e1, e2, c, nAR, tbl, s);
+
+		s.comment("The test");
+		if (jumpIf)
+			CgenSupport.emitBeq(CgenSupport.T1, CgenSupport.ACC, label, s);
+		else
+			CgenSupport.emitBne(CgenSupport.T1, CgenSupport.ACC, label, s);
+		return nAR;
+	}
+
+	/**
+	 * Are both the operands statically Ints?
+	 * 
+	 * @param c The class in which this expression lies
+	 */
+	private boolean comparesInts(class_ c)
+	{
+		return CgenUtilities.getStaticType(e1, c).equals(TreeConstants.Int)
+				&& CgenUtilities.getStaticType(e2, c).equals(TreeConstants.Int);
+	}
+
+	public List<Expression> getSubexpressions()
+	{
+		return Arrays.asList(e1, e2);
+	}
+
+	public int getRegisterDemand(class_ c, CgenLookupTable tbl)
+	{
+		if (!comparesInts(c))
+			return super.getRegisterDemand(c, tbl);
+		return getOperandsRegisterDemand(e1, e2, c, tbl);
+	}
+
+	/**
+	 * Folds the operands. If both are constants the expression is replaced
+	 * by the outcome of the comparison of their values
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		e1 = e1.fold(env);
+		e2 = e2.fold(env);
+
+		if (!ConstantFolder.isConstant(e1) || !ConstantFolder.isConstant(e2))
+			return this;
+		return ConstantFolder.boolConst(lineNumber, ConstantFolder
+				.getValue(e1).equals(ConstantFolder.getValue(e2)));
+	}
+
+	public boolean assigns(AbstractSymbol name)
+	{
+		return e1.assigns(name) || e2.assigns(name);
+	}
 }
\ No newline at end of file
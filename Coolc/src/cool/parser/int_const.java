@@ -12,6 +12,7 @@ import cool.semant.SemantError;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
 import cool.cgen.IntSymbol;
 
 import java.io.PrintStream;
@@ -65,15 +66,46 @@ public class int_const extends Expression
 	/**
 	 * Generates code for the 'int_const' expression
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 
 	{
-		s.println("# Integer constant");
+		s.comment("Integer constant");
 		CgenSupport.emitLoadInt(CgenSupport.ACC, (IntSymbol) token, s);
-		s.println();
+		s.blank();
 		return nAR;
 	}
 
+	/**
+	 * Generates code which loads the value of the constant into $a0
+	 * 
+	 * @param s the list to which the code is added
+	 * */
+	public int codeUnboxed(class_ c, int nAR, CgenLookupTable tbl,
+			InstructionList s)
+	{
+		Integer value = getValue();
+		if (value == null)
+			return super.codeUnboxed(c, nAR, tbl, s);
+		s.comment("Integer constant");
+		CgenSupport.emitLoadImm(CgenSupport.ACC, value.intValue(), s);
+		return nAR;
+	}
+
+	/**
+	 * Returns the value of the constant or null if it is out of the range of
+	 * an Int
+	 */
+	Integer getValue()
+	{
+		try
+		{
+			return Integer.valueOf(token.toString());
+		}
+		catch (NumberFormatException ex)
+		{
+			return null;
+		}
+	}
 }
@@ -3,7 +3,9 @@
  */
 package cool.parser;
 
+import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -11,9 +13,12 @@ import cool.common.Utilities;
 import cool.semant.ObjectTypeEnvironment;
 import cool.semant.SemantError;
 
-import cool.cgen.BoolConst;
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
+
+import java.util.Arrays;
+import java.util.List;
 
 import java.io.PrintStream;
 
@@ -66,52 +71,63 @@ public class isvoid extends Expression
 	}
 
 	/**
-	 * Generates code for this expression. This method is to be completed
-	 * in programming assignment 5. (You may add or remove parameters as
-	 * you wish.)
+	 * Generates code for this expression.
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
-
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 	{
-		s.println("# isvoid expression");
-		s.println();
-
-		int falseLabel = CgenSupport.getLabel();
-		int endLabel = CgenSupport.getLabel();
+		s.comment("isvoid expression");
+		return codeBoolFromBranch(c, nAR, tbl, s);
+	}
 
-		s.println("# Evaluate the operand and get reference in $a0");
+	/**
+	 * Generates code which tests the class tag of the operand and jumps to
+	 * the label on the outcome
+	 * 
+	 * @param s the list to which the code is added
+	 * */
+	public int codeBranch(class_ c, int nAR, CgenLookupTable tbl,
+			boolean jumpIf, int label, InstructionList s)
+	{
+		s.comment("Evaluate the operand and get reference in $a0");
 		nAR = e1.code(c, nAR, tbl, s);
-		s.println();
 
-		s.println("# Get the class tag of the object");
+		s.comment("Get the class tag of the object");
 		CgenSupport.emitFetchClassTag(CgenSupport.ACC, CgenSupport.ACC, s);
-		s.println();
-
-		s.println(" #isvoid?? Branch to the 'false' branch if not void, label"
-				+ falseLabel);
-		CgenSupport.emitBgti(CgenSupport.ACC, CgenSupport.VOID_CLASSTAG,
-				falseLabel, s);
-		s.println();
-
-		s.println("# True branch");
-		s.println("# Return value is true");
-		CgenSupport.emitLoadBool(CgenSupport.ACC, new BoolConst(true), s);
-		CgenSupport.emitBranch(endLabel, s);
-		s.println();
-
-		s.println("# False branch");
-		CgenSupport.emitLabelDef(falseLabel, s);
-
-		s.println("# Return value is true");
-		CgenSupport.emitLoadBool(CgenSupport.ACC, new BoolConst(false), s);
-		s.println();
-
-		s.println("# End of isvoid expression");
-		CgenSupport.emitLabelDef(endLabel, s);
-		CgenSupport.emitStoreBool(CgenSupport.T1, CgenSupport.ACC, s);
-		s.println();
+
+		s.comment("isvoid??");
+		if (jumpIf)
+			CgenSupport.emitBlti(CgenSupport.ACC,
+					CgenSupport.VOID_CLASSTAG + 1, label, s);
+		else
+			CgenSupport.emitBgti(CgenSupport.ACC, CgenSupport.VOID_CLASSTAG,
+					label, s);
 		return nAR;
 	}
+
+	public List<Expression> getSubexpressions()
+	{
+		return Arrays.asList(e1);
+	}
+
+	/**
+	 * Folds the operand. A constant is never void
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		e1 = e1.fold(env);
+
+		if (!ConstantFolder.isConstant(e1))
+			return this;
+		return ConstantFolder.boolConst(lineNumber, false);
+	}
+
+	public boolean assigns(AbstractSymbol name)
+	{
+		return e1.assigns(name);
+	}
 }
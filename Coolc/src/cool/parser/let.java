@@ -5,6 +5,7 @@ package cool.parser;
 
 import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -16,6 +17,10 @@ import cool.semant.SemantUtil;
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
 import cool.cgen.CgenUtilities;
+import cool.cgen.InstructionList;
+
+import java.util.Arrays;
+import java.util.List;
 
 import java.io.PrintStream;
 
@@ -121,9 +126,8 @@ public class let extends Expression
 											+ type_decl + ".");
 					return;
 				}
-			else if (!o.getSuperTypes(
-					SemantUtil.getResolvedType(init.get_type(), c)).contains(
-					type_decl))
+			else if (!o.isSubtype(
+					SemantUtil.getResolvedType(init.get_type(), c), type_decl))
 			{
 				err.semantError(c)
 						.println(
@@ -149,65 +153,130 @@ public class let extends Expression
 	/**
 	 * Generates code for the 'let' expression.
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 	{
 
-		s.println("# let expression");
-		s.println();
+		s.comment("let expression");
+		s.blank();
 
 		tbl.enterScope();
 
-		s.println("# Save the self object before evaluating the "
-				+ "initializer.");
-		s.println("# Will need it while evaluating the body of the let");
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println();
+		String reg = tbl.allocateRegister();
+		if (reg != null)
+		{
+			nAR = codeInRegister(reg, c, nAR, tbl, s);
+			tbl.freeRegister(reg);
+			tbl.exitScope();
+			s.comment("let expression ends");
+			return nAR;
+		}
 
 		// Hack. Incomplete
 		if (init instanceof no_expr)
 		{
-			s.println("# No Initializer. Get the reference to the default "
+			s.comment("No Initializer. Get the reference to the default "
 					+ "value in $a0 ");
 			CgenSupport.emitLoadAddress(CgenSupport.ACC,
 					CgenUtilities.getDefaultObjectAddress(type_decl), s);
-			s.println();
+			s.blank();
 		}
 		else
 		{
-			s.println("# Evaluate the initializer and get the reference in "
+			s.comment("Evaluate the initializer and get the reference in "
 					+ "$a0");
 			nAR = init.code(c, nAR, tbl, s);
-			s.println();
+			s.blank();
 		}
 
-		s.println("# Temporarily hold the let identifier");
-		CgenSupport.emitMove(CgenSupport.T1, CgenSupport.ACC, s);
-		s.println();
-
-		s.println("# Restore the self object");
-		nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("# Save the let variable in the stack");
-		nAR = CgenSupport.emitPush(CgenSupport.T1, nAR, s);
+		s.comment("Save the let variable in the stack");
+		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
 		// The offset is negative as the location of local variables are below
 		// the FP
 		tbl.addId(identifier, -(nAR - 1));
-		s.println();
+		s.blank();
 
-		s.println("# Evaluate let-body and get the reference in $a0");
+		s.comment("Evaluate let-body and get the reference in $a0");
 		nAR = body.code(c, nAR, tbl, s);
-		s.println();
+		s.blank();
 
-		s.println("# Remove the let variable introduced");
+		s.comment("Remove the let variable introduced");
 		nAR = CgenSupport.emitPop(CgenSupport.T1, nAR, s);
 		tbl.exitScope();
-		s.println();
+		s.blank();
+
+		s.comment("let expression ends");
+		return nAR;
+	}
+
+	/**
+	 * Generates code for the 'let' expression with the let variable held in
+	 * the specified register
+	 */
+	private int codeInRegister(String reg, class_ c, int nAR,
+			CgenLookupTable tbl, InstructionList s)
+	{
+		if (init instanceof no_expr)
+		{
+			s.comment("No Initializer. Get the reference to the default "
+					+ "value in " + reg);
+			CgenSupport.emitLoadAddress(reg,
+					CgenUtilities.getDefaultObjectAddress(type_decl), s);
+			s.blank();
+		}
+		else
+		{
+			s.comment("Evaluate the initializer into the let variable");
+			nAR = init.code(c, nAR, tbl, s);
+			CgenSupport.emitMove(reg, CgenSupport.ACC, s);
+			s.blank();
+		}
+		tbl.addId(identifier, reg);
 
-		s.println("# let expression ends");
+		s.comment("Evaluate let-body and get the reference in $a0");
+		nAR = body.code(c, nAR, tbl, s);
+		s.blank();
 		return nAR;
 	}
 
+	public List<Expression> getSubexpressions()
+	{
+		return Arrays.asList(init, body);
+	}
+
+	/**
+	 * The let variable is held in a register while the initializer and the
+	 * body are evaluated
+	 */
+	public int getRegisterDemand(class_ c, CgenLookupTable tbl)
+	{
+		return 1 + super.getRegisterDemand(c, tbl);
+	}
+
+	/**
+	 * Folds the initializer and the body. A variable bound to a constant of
+	 * its type, and never assigned, is replaced by the constant in the body
+	 * and the let by its body
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		init = init.fold(env);
+
+		boolean propagate = ConstantFolder.isConstant(init, type_decl)
+				&& !body.assigns(identifier);
+		env.enterScope();
+		env.addId(identifier, propagate ? init : this);
+		body = body.fold(env);
+		env.exitScope();
+		return propagate ? body : this;
+	}
+
+	public boolean assigns(AbstractSymbol name)
+	{
+		return init.assigns(name) || body.assigns(name);
+	}
 }
@@ -3,7 +3,9 @@
  */
 package cool.parser;
 
+import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -13,6 +15,10 @@ import cool.semant.SemantError;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
+
+import java.util.Arrays;
+import java.util.List;
 
 import java.io.PrintStream;
 
@@ -84,81 +90,75 @@ public class loop extends Expression
 	 * in programming assignment 5. (You may add or remove parameters as
 	 * you wish.)
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 
 	{
-		s.println("# while loop");
-		s.println();
+		s.comment("while loop");
+		s.blank();
 
 		int endLabel = CgenSupport.getLabel();
 		int loopLabel = CgenSupport.getLabel();
 
-		s.println("# Save self object");
-		s.println("# Will need it to evaluate the pred in the first iteration");
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("# Loop");
+		s.comment("Loop");
 		CgenSupport.emitLabelDef(loopLabel, s);
-		s.println();
-
-		s.println("# Retrieve self object before evaluating the predicate");
-		nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("# Save self object before evaluating predicate.");
-		s.println("# Will need it to evaluate the body of the loop");
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("# Evaluate predicate and get reference in $a0");
-		nAR = pred.code(c, nAR, tbl, s);
-		CgenSupport.emitFetchBool(CgenSupport.ACC, CgenSupport.ACC, s);
-		s.println();
-
-		s.println("# Get reference to 'false' constant");
-		CgenSupport.emitLoadAddress(CgenSupport.T1,
-				CgenSupport.BOOLCONST_PREFIX + CgenSupport.BOOL_FALSE, s);
-		CgenSupport.emitFetchBool(CgenSupport.T1, CgenSupport.T1, s);
-		s.println();
-
-		s.println("# The test. Did the predicate evaluate to 'false'?");
-		s.println("# If it did jump to label" + endLabel);
-		CgenSupport.emitBeq(CgenSupport.ACC, CgenSupport.T1, endLabel, s);
-		s.println();
-
-		s.println("# Retrieve self object before evaluating the body");
-		nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("# Save self object.");
-		s.println("# Will need it to evaluate the pred in the next iteration");
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("# Evaluate the body and get reference in $a0");
+		s.blank();
+		tbl.enterLoop();
+
+		s.comment("Evaluate predicate. If it is 'false' jump to label"
+				+ endLabel);
+		nAR = pred.codeBranch(c, nAR, tbl, false, endLabel, s);
+		s.blank();
+
+		s.comment("Evaluate the body and get reference in $a0");
 		nAR = body.code(c, nAR, tbl, s);
-		s.println();
+		tbl.exitLoop();
+		s.blank();
 
-		s.println("# Go back to label" + loopLabel
+		s.comment("Go back to label" + loopLabel
 				+ " to check if predicate is false");
 		CgenSupport.emitBranch(loopLabel, s);
-		s.println();
+		s.blank();
 
-		s.println("# End of loop.");
+		s.comment("End of loop.");
 		CgenSupport.emitLabelDef(endLabel, s);
 
-		s.println("# Retrieve self object to restore the SP");
-		nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("# Set return value to void");
+		s.comment("Set return value to void");
 		CgenSupport.emitLoadAddress(CgenSupport.ACC,
 				CgenSupport.VOIDCONST_PREFIX, s);
-		s.println();
+		s.blank();
 		return nAR;
 	}
 
+	public List<Expression> getSubexpressions()
+	{
+		return Arrays.asList(pred, body);
+	}
+
+	public int getRegisterDemand(class_ c, CgenLookupTable tbl)
+	{
+		tbl.enterLoop();
+		int demand = super.getRegisterDemand(c, tbl);
+		tbl.exitLoop();
+		return demand;
+	}
+
+	/**
+	 * Folds the predicate and the body
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		pred = pred.fold(env);
+		body = body.fold(env);
+		return this;
+	}
+
+	public boolean assigns(AbstractSymbol name)
+	{
+		return pred.assigns(name) || body.assigns(name);
+	}
 }
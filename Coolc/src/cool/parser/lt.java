@@ -3,7 +3,9 @@
  */
 package cool.parser;
 
+import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -13,6 +15,10 @@ import cool.semant.SemantError;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
+
+import java.util.Arrays;
+import java.util.List;
 
 import java.io.PrintStream;
 
@@ -72,82 +78,67 @@ public class lt extends Expression
 	}
 
 	/**
-	 * Generates code for this expression. This method is to be completed
-	 * in programming assignment 5. (You may add or remove parameters as
-	 * you wish.)
+	 * Generates code for this expression.
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
+	{
+		s.comment("< expression");
+		return codeBoolFromBranch(c, nAR, tbl, s);
+	}
 
+	/**
+	 * Generates code which compares the values of the operands and jumps to
+	 * the label on the outcome
+	 * 
+	 * @param s the list to which the code is added
+	 * */
+	public int codeBranch(class_ c, int nAR, CgenLookupTable tbl,
+			boolean jumpIf, int label, InstructionList s)
 	{
-		s.println("# < expression");
-		s.println("# ");
-		int trueLabel = CgenSupport.getLabel();
-		int endLabel = CgenSupport.getLabel();
-
-		s.println("# Save self object. Needed during evaluation of the 2nd "
-				+ "operand");
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("#Evaluate 1st operand and get reference in $a0");
-		nAR = e1.code(c, nAR, tbl, s);
-		s.println();
-
-		s.println("#Get value of 1st operand");
-		CgenSupport.emitFetchInt(CgenSupport.T1, CgenSupport.ACC, s);
-		s.println();
-
-		s.println("# Restore self object before evaluation of the 2nd "
-				+ "operand");
-		nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("#Save the value of the 1st operand in the stack");
-		nAR = CgenSupport.emitPush(CgenSupport.T1, nAR, s);
-		s.println();
-
-		s.println("# Evaluate the 2nd operand and get reference in $a0");
-		nAR = e2.code(c, nAR, tbl, s);
-		s.println("#");
-
-		s.println("# Get the value of the 2nd operand");
-		CgenSupport.emitFetchInt(CgenSupport.ACC, CgenSupport.ACC, s);
-		s.println();
-
-		s.println("# Restore the value of the first operand");
-		nAR = CgenSupport.emitPop(CgenSupport.T1, nAR, s);
-		s.println();
-
-		s.println("# The test. Branch to label" + trueLabel + " if true");
-		CgenSupport.emitBlt(CgenSupport.T1, CgenSupport.ACC, trueLabel, s);
-		s.println();
-
-		/** False **/
-		s.println("# False part");
-		s.println("# Set return value to the boolean constant, false");
-		CgenSupport.emitLoadAddress(CgenSupport.ACC,
-				CgenSupport.BOOLCONST_PREFIX + CgenSupport.BOOL_FALSE, s);
-		s.println();
-
-		s.println("#Branch to the end, label" + endLabel);
-		CgenSupport.emitBranch(endLabel, s);
-		s.println("#");
-
-		s.println("# True part");
-		CgenSupport.emitLabelDef(trueLabel, s);
-		s.println();
-
-		s.println("# Set return value to the boolean constant, true");
-		CgenSupport.emitLoadAddress(CgenSupport.ACC,
-				CgenSupport.BOOLCONST_PREFIX + CgenSupport.BOOL_TRUE, s);
-		s.println();
-
-		s.println("# End of < expression");
-		CgenSupport.emitLabelDef(endLabel, s);
-		s.println();
+		nAR = codeUnboxedOperands(e1, e2, c, nAR, tbl, s);
+
+		s.comment("The test");
+		if (jumpIf)
+			CgenSupport.emitBlt(CgenSupport.T1, CgenSupport.ACC, label, s);
+		else
+			CgenSupport.emitBleq(CgenSupport.ACC, CgenSupport.T1, label, s);
 		return nAR;
+	}
+
+	public List<Expression> getSubexpressions()
+	{
+		return Arrays.asList(e1, e2);
+	}
 
+	public int getRegisterDemand(class_ c, CgenLookupTable tbl)
+	{
+		return getOperandsRegisterDemand(e1, e2, c, tbl);
+	}
+
+	/**
+	 * Folds the operands. If both are constants the expression is replaced
+	 * by the outcome of the comparison
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		e1 = e1.fold(env);
+		e2 = e2.fold(env);
+
+		Integer i1 = ConstantFolder.intValue(e1);
+		Integer i2 = ConstantFolder.intValue(e2);
+		if (i1 == null || i2 == null)
+			return this;
+		return ConstantFolder.boolConst(lineNumber,
+				i1.intValue() < i2.intValue());
+	}
+
+	public boolean assigns(AbstractSymbol name)
+	{
+		return e1.assigns(name) || e2.assigns(name);
 	}
 }
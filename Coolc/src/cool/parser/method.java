@@ -4,6 +4,7 @@
 package cool.parser;
 
 import cool.common.AbstractSymbol;
+import cool.common.Flags;
 import cool.common.PossibleNullDereferenceException;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
@@ -15,9 +16,13 @@ import cool.semant.SemantUtil;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
+import cool.cgen.RapidTypeAnalysis;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
 
 /**
@@ -27,6 +32,9 @@ import java.util.Vector;
  */
 public class method extends Feature
 {
+	/** Maximum number of nodes in the body of an inlined method */
+	private static final int INLINE_LIMIT = 12;
+
 	private AbstractSymbol name;
 	private Formals formals;
 	private AbstractSymbol return_type;
@@ -165,8 +173,8 @@ public class method extends Feature
 		}
 		else
 		{
-			if (!o.getSuperTypes(SemantUtil.getResolvedType(expr.get_type(), c))
-					.contains(return_type))
+			if (!o.isSubtype(SemantUtil.getResolvedType(expr.get_type(), c),
+					return_type))
 			{
 				err.semantError(c).println(
 						"Inferred return type " + expr.get_type()
@@ -204,19 +212,7 @@ public class method extends Feature
 			throws PossibleNullDereferenceException,
 			UnresolvableSelfTypeException
 	{
-		for (AbstractSymbol supertype : o.getSuperTypes(c.getName()))
-		{
-			if (supertype.equals(c.getName()))
-				continue;
-			for (TreeNode t : o.toClass_(supertype).getFeatures().getElements())
-			{
-				if (t instanceof attr)
-					continue;
-				if (((method) t).getName().equals(name))
-					return false;
-			}
-		}
-		return true;
+		return o.lookupMethod(c.getParent(), name) == null;
 	}
 
 	// Get the original method that this one is overridding
@@ -224,23 +220,61 @@ public class method extends Feature
 			throws PossibleNullDereferenceException,
 			UnresolvableSelfTypeException
 	{
-		for (AbstractSymbol supertype : o.getSuperTypes(c.getName()))
-		{
-			if (supertype.equals(c.getName()))
-				continue;
-			for (TreeNode t : o.toClass_(supertype).getFeatures().getElements())
-			{
-				if (t instanceof attr)
-					continue;
-				method m = (method) t;
-				if (m.getName().equals(name))
-					return m;
-			}
-		}
-		throw new PossibleNullDereferenceException(
-				"Internal Error : getOriginalMethod : Trying to get the "
-						+ "original method when this one is the one. Use "
-						+ "isOriginalMethod() before.");
+		method m = o.lookupMethod(c.getParent(), name);
+		if (m == null)
+			throw new PossibleNullDereferenceException(
+					"Internal Error : getOriginalMethod : Trying to get the "
+							+ "original method when this one is the one. Use "
+							+ "isOriginalMethod() before.");
+		return m;
+	}
+
+	/**
+	 * Can a dispatch to this method be replaced by its body? The body must be
+	 * small and must not dispatch, so that inlining does not recurse. The
+	 * methods of the basic classes have no body to inline.
+	 */
+	public boolean isInlinable()
+	{
+		return !(expr instanceof no_expr) && expr.size() <= INLINE_LIMIT
+				&& !expr.containsDispatch();
+	}
+
+	/**
+	 * Returns the number of registers demanded by the body of this method
+	 * 
+	 * @param c The class in which the method is defined
+	 * @param tbl The lookup table
+	 */
+	public int getRegisterDemand(class_ c, CgenLookupTable tbl)
+	{
+		return expr.getRegisterDemand(c, tbl);
+	}
+
+	/**
+	 * Generates the code of the body of this method in place of a dispatch to
+	 * it. The arguments are expected on top of the stack, in the order of the
+	 * formals, and the invoking object in SELF. The body is coded with a scope
+	 * of its own which binds the formals to the arguments, so that none of the
+	 * variables of the caller are visible in it.
+	 * 
+	 * @param c The class in which the method is defined
+	 * @param nAR The number of items on the current activation record
+	 * @param tbl The lookup table of the caller
+	 * @param str The list to which the code is added
+	 * @return The number of items on the current activation record
+	 */
+	public int codeInline(class_ c, int nAR, CgenLookupTable tbl,
+			InstructionList str)
+	{
+		CgenLookupTable inlineTbl = tbl.newInlineTable();
+		inlineTbl.enterScope();
+		int offset = -(nAR - formals.getLength());
+		for (TreeNode t : formals.getElements())
+			inlineTbl.addId(((formal) t).getName(), offset--);
+		nAR = expr.code(c, nAR, inlineTbl, str);
+		inlineTbl.exitScope();
+		return nAR;
 	}
 
 	/**
@@ -249,19 +283,31 @@ public class method extends Feature
 	 * @param c The class_ object representing the method in which the method
 	 *            is statically defined.
 	 */
-	public void code(class_ c, CgenLookupTable tbl, PrintStream str)
+	public void code(class_ c, CgenLookupTable tbl, InstructionList str)
 	{
 		int nAR = 0; // number of items on the current activation record
 
 		CgenSupport.emitMethodDef(c.getName(), name, str);
 
-		str.println("# Set FP");
+		str.comment("Set FP");
 		CgenSupport.emitMove(CgenSupport.FP, CgenSupport.SP, str);
-		str.println();
+		str.blank();
 
-		str.println("# Save return address");
+		str.comment("Save return address");
 		nAR = CgenSupport.emitPush(CgenSupport.RA, nAR, str);
-		str.println();
+		str.blank();
+
+		// Self is held in SELF. Under -O the local variables and temporaries
+		// are held in registers too. These are saved on entry
+		List<String> saved = new ArrayList<String>();
+		saved.add(CgenSupport.SELF);
+		if (Flags.cgen_optimize)
+			saved.addAll(tbl.enterMethod(expr.getRegisterDemand(c, tbl)));
+		str.comment("Save the registers used by the method");
+		nAR = CgenSupport.emitSaveRegisters(saved, nAR, str);
+		str.comment("Hold self in " + CgenSupport.SELF);
+		CgenSupport.emitMove(CgenSupport.SELF, CgenSupport.ACC, str);
+		str.blank();
 
 		// Add the addresses of the formal parameters, relative to the FP,
 		// into the symbol table. Note that the arguments are in the caller
@@ -270,28 +316,52 @@ public class method extends Feature
 		for (TreeNode t : formals.getElements())
 			tbl.addId(((formal) (t)).getName(), offset--);
 
-		str.println("# Emit code for method body");
+		str.comment("Emit code for method body");
 		nAR = expr.code(c, nAR, tbl, str); // Return address is pushed
-		str.println();
+		str.blank();
 
-		str.println("# Get return address");
+		str.comment("Restore the saved registers");
+		nAR = CgenSupport.emitRestoreRegisters(saved, nAR, str);
+		str.blank();
+
+		str.comment("Get return address");
 		nAR = CgenSupport.emitPop(CgenSupport.RA, nAR, str);
-		str.println();
+		str.blank();
 		if (nAR != 0)
 			System.err.println("Error: nAR = " + nAR);
 
 		// callee responsibilities after method body execution
 		if (formals.getLength() > 0)
 		{
-			str.println("# Pop AR");
+			str.comment("Pop AR");
 			// This in effect is popping entries in the caller activation record
 			// and this has to be accounted for after the dispatch of a method
 			CgenSupport.emitPopAR(formals.getLength(), str);
-			str.println();
+			str.blank();
 		}
 
-		str.println("# Return");
+		str.comment("Return");
 		CgenSupport.emitReturn(str);
-		str.println();
+		str.blank();
+	}
+
+	/**
+	 * Records the classes instantiated and the methods invoked by the body of
+	 * this method in the reachability analysis
+	 * 
+	 * @param c The class in which the method is defined
+	 * @param rta The analysis
+	 */
+	public void analyze(class_ c, RapidTypeAnalysis rta)
+	{
+		expr.analyze(c, rta);
+	}
+
+	/**
+	 * Folds the constant expressions of the body of the method
+	 */
+	public void fold()
+	{
+		expr = ConstantFolder.fold(expr);
 	}
 }
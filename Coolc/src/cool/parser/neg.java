@@ -3,7 +3,9 @@
  */
 package cool.parser;
 
+import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -13,6 +15,10 @@ import cool.semant.SemantError;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
+
+import java.util.Arrays;
+import java.util.List;
 
 import java.io.PrintStream;
 
@@ -65,43 +71,56 @@ public class neg extends Expression
 	}
 
 	/**
-	 * Generates code for this expression. This method is to be completed
-	 * in programming assignment 5. (You may add or remove parameters as
-	 * you wish.)
+	 * Generates code for this expression. The result is boxed into a new Int
+	 * object
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
-
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 	{
-		s.println("# neg expression");
-		s.println();
-
-		s.println("# Evaluate the operand and get reference in $a0");
-		nAR = e1.code(c, nAR, tbl, s);
-		s.println();
+		nAR = codeUnboxed(c, nAR, tbl, s);
+		return CgenSupport.emitBoxInt(nAR, s);
+	}
 
-		s.println("# Negate the value and save it");
-		CgenSupport.emitFetchInt(CgenSupport.ACC, CgenSupport.ACC, s);
+	/**
+	 * Generates code which leaves the value of this expression in $a0
+	 * 
+	 * @param s the list to which the code is added
+	 * */
+	public int codeUnboxed(class_ c, int nAR, CgenLookupTable tbl,
+			InstructionList s)
+	{
+		s.comment("neg expression");
+		nAR = e1.codeUnboxed(c, nAR, tbl, s);
 		CgenSupport.emitNeg(CgenSupport.ACC, CgenSupport.ACC, s);
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("#Create new integer object");
-		nAR = CgenSupport.emitCallObjectCopy(TreeConstants.Int, nAR, s);
-		s.println();
+		return nAR;
+	}
 
-		s.println("# Retrieve the negated value");
-		nAR = CgenSupport.emitPop(CgenSupport.T1, nAR, s);
-		s.println();
+	public List<Expression> getSubexpressions()
+	{
+		return Arrays.asList(e1);
+	}
 
-		s.println("# Initialize the new object with it");
-		CgenSupport.emitStoreInt(CgenSupport.T1, CgenSupport.ACC, s);
-		s.println();
+	/**
+	 * Folds the operand. If it is a constant the expression is replaced by
+	 * its negation
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		e1 = e1.fold(env);
 
-		s.println("# End of neg expression");
-		s.println();
-		return nAR;
+		Integer i1 = ConstantFolder.intValue(e1);
+		if (i1 == null)
+			return this;
+		Expression e = ConstantFolder.intConst(lineNumber, -i1.longValue());
+		return e == null ? this : e;
 	}
 
+	public boolean assigns(AbstractSymbol name)
+	{
+		return e1.assigns(name);
+	}
 }
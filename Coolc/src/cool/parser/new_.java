@@ -14,6 +14,8 @@ import cool.semant.SemantUtil;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
+import cool.cgen.RapidTypeAnalysis;
 
 import java.io.PrintStream;
 
@@ -75,47 +77,47 @@ public class new_ extends Expression
 	 * in programming assignment 5. (You may add or remove parameters as
 	 * you wish.)
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 
 	{
-		s.println("# Expression 'new' + : " + nAR);
-		s.println();
+		s.comment("Expression 'new' + : " + nAR);
+		s.blank();
 		if (type_name.equals(TreeConstants.SELF_TYPE))
 		{
-			s.println("# Get the class tag of the invoking object");
-			CgenSupport.emitFetchClassTag(CgenSupport.ACC, CgenSupport.ACC, s);
-			s.println();
-
-			s.println("# Get the address to the prototype object of self");
-			s.println();
-			s.println("# Offset in object table at which required prototype");
-			s.println("# object is obtained");
+			s.comment("Get the class tag of the invoking object");
+			CgenSupport.emitFetchClassTag(CgenSupport.ACC, CgenSupport.SELF, s);
+			s.blank();
+
+			s.comment("Get the address to the prototype object of self");
+			s.blank();
+			s.comment("Offset in object table at which required prototype");
+			s.comment("object is obtained");
 			CgenSupport.emitSll(CgenSupport.ACC, CgenSupport.ACC, 3, s);
 
-			s.println("# Base of the object table");
+			s.comment("Base of the object table");
 			CgenSupport.emitLoadAddress(CgenSupport.T1,
 					CgenSupport.CLASSOBJTAB, s);
 
-			s.println("# Address of the required prototype object");
+			s.comment("Address of the required prototype object");
 			CgenSupport.emitAdd(CgenSupport.ACC, CgenSupport.T1,
 					CgenSupport.ACC, s);
 
-			s.println("# Save address. Will need it to calculate the");
-			s.println("# reference to the init method");
+			s.comment("Save address. Will need it to calculate the");
+			s.comment("reference to the init method");
 			nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
 
-			s.println("# Create new object");
+			s.comment("Create new object");
 			nAR = CgenSupport.emitPush(CgenSupport.FP, nAR, s);
 			CgenSupport.emitLoad(CgenSupport.ACC, 0, CgenSupport.ACC, s); // How??
 																			// Incomplete
 			CgenSupport.emitJal("Object.copy", s);
 			nAR = CgenSupport.emitPop(CgenSupport.FP, nAR, s);
 
-			s.println("# Restore address of prototype object");
+			s.comment("Restore address of prototype object");
 			nAR = CgenSupport.emitPop(CgenSupport.T1, nAR, s);
-			s.println("# Address of init method");
+			s.comment("Address of init method");
 			// CgenSupport.emitAddiu(CgenSupport.T1, CgenSupport.T1, 4, s);
 			CgenSupport.emitLoad(CgenSupport.T1, 1, CgenSupport.T1, s); // How??
 																		// Incomplete
@@ -126,15 +128,25 @@ public class new_ extends Expression
 		}
 		else
 		{
-			s.println("# Create new object of type " + type_name);
+			s.comment("Create new object of type " + type_name);
 			nAR = CgenSupport.emitCallObjectCopy(type_name, nAR, s);
-			s.println();
+			s.blank();
 			// Attributes are initialized to default values or according to
 			// their initializers by init call as this is a copy
 			// of a prototype object
 		}
-		s.println("# End - Expression 'new'");
-		s.println();
+		s.comment("End - Expression 'new'");
+		s.blank();
 		return nAR;
 	}
+
+	/**
+	 * Records the class instantiated. An object of SELF_TYPE is of the class
+	 * of self, which is already instantiated
+	 */
+	public void analyze(class_ c, RapidTypeAnalysis rta)
+	{
+		if (!type_name.equals(TreeConstants.SELF_TYPE))
+			rta.instantiate(type_name);
+	}
 }
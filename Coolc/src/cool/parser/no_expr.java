@@ -10,6 +10,7 @@ import cool.semant.ObjectTypeEnvironment;
 import cool.semant.SemantError;
 
 import cool.cgen.CgenLookupTable;
+import cool.cgen.InstructionList;
 
 import java.io.PrintStream;
 
@@ -58,9 +59,9 @@ public class no_expr extends Expression
 	 * in programming assignment 5. (You may add or remove parameters as
 	 * you wish.)
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 	{
 		return nAR;
 	}
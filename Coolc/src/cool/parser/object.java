@@ -5,6 +5,7 @@ package cool.parser;
 
 import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -13,9 +14,9 @@ import cool.semant.ObjectTypeEnvironment;
 import cool.semant.SemantError;
 import cool.semant.SemantUtil;
 
-import cool.cgen.AttributeRecord;
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
 
 import java.io.PrintStream;
 
@@ -69,64 +70,60 @@ public class object extends Expression
 	/**
 	 * Generates code for the 'object' expression.
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 
 	{
-		s.println("# Expression - Object");
-		s.println();
+		s.comment("Expression - Object");
+		s.blank();
 		if (name.toString().equals(TreeConstants.self.toString()))
 		{
-			s.println("# Invoking object is self");
+			s.comment("Invoking object is self");
+			CgenSupport.emitMove(CgenSupport.ACC, CgenSupport.SELF, s);
 		}
 		else
 		{
 			if (tbl.lookup(name) == null)
 			{
 				// attribute
-				s.println("# Identifier is an attribute");
+				s.comment("Identifier is an attribute");
 
-				s.println("# Class tag of invoking object");
-				nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-				CgenSupport.emitFetchClassTag(CgenSupport.ACC, CgenSupport.ACC,
-						s);
-
-				int aLabel[] = new int[tbl.getCandidateAttributes(name).size()];
-				int endLabel = CgenSupport.getLabel();
-				int nLabel = 0;
-				for (AttributeRecord a : tbl.getCandidateAttributes(name))
-				{
-					aLabel[nLabel] = CgenSupport.getLabel();
-					CgenSupport.emitLoadImm(CgenSupport.T1, a.getClass_()
-							.getClassTag(), s);
-					CgenSupport.emitBeq(CgenSupport.ACC, CgenSupport.T1,
-							aLabel[nLabel], s);
-					nLabel++;
-				}
-				int nItems = nAR;
-				nLabel = 0;
-				for (AttributeRecord a : tbl.getCandidateAttributes(name))
-				{
-					nAR = nItems;
-					CgenSupport.emitLabelDef(aLabel[nLabel], s);
-					nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-					CgenSupport.emitLoad(CgenSupport.ACC, a.getOffset(),
-							CgenSupport.ACC, s);
-					CgenSupport.emitBranch(endLabel, s);
-					nLabel++;
-				}
-				CgenSupport.emitLabelDef(endLabel, s);
+				s.comment("Load it relative to the self object");
+				CgenSupport.emitLoad(CgenSupport.ACC,
+						tbl.getAttributeOffset(c.getName(), name),
+						CgenSupport.SELF, s);
 			}
 			else
 			{
-				s.println("# Identifier is local");
-				CgenSupport.emitLoad(CgenSupport.ACC,
-						(Integer) tbl.lookup(name), CgenSupport.FP, s);
+				s.comment("Identifier is local");
+				CgenSupport.emitLoadLocal(CgenSupport.ACC, tbl.lookup(name), s);
 			}
 		}
-		s.println("# End - Expression - Object");
-		s.println();
+		s.comment("End - Expression - Object");
+		s.blank();
 		return nAR;
 	}
+
+	/**
+	 * Replaces a variable bound to a constant by the constant
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		Object info = env.lookup(name);
+		if (!ConstantFolder.isConstant(info))
+			return this;
+		return ConstantFolder.copy((Expression) info, lineNumber);
+	}
+
+	/**
+	 * Is this a reference to self?
+	 */
+	boolean isSelf()
+	{
+		return name.equals(TreeConstants.self);
+	}
 }
\ No newline at end of file
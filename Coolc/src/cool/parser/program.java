@@ -4,6 +4,7 @@
 package cool.parser;
 
 import cool.common.AbstractTable;
+import cool.common.Flags;
 import cool.common.PossibleNullDereferenceException;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -14,10 +15,22 @@ import cool.semant.ObjectTypeEnvironment;
 import cool.semant.SemantChecker;
 import cool.semant.SemantError;
 
+import cool.cgen.AsmWriter;
 import cool.cgen.CgenDataSection;
 import cool.cgen.CgenLookupTable;
+import cool.cgen.CodeOptimizer;
+import cool.cgen.InstructionList;
+import cool.cgen.OptimizationPass;
+import cool.cgen.RapidTypeAnalysis;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Defines AST constructor 'program'.
@@ -96,6 +109,12 @@ public class program extends Program
 			throws PossibleNullDereferenceException,
 			UnresolvableSelfTypeException
 	{
+		if (Flags.parallel)
+		{
+			validateInParallel(o, err);
+			return;
+		}
+
 		o.enterScope(); // program scope start
 
 		// Validate each class of the program
@@ -106,14 +125,77 @@ public class program extends Program
 	}
 
 	/**
-	 * This method is the entry point to the code generator. All of the work
-	 * of the code generator takes place within CgenClassTable constructor.
+	 * Validates the classes of the program concurrently. Once the inheritance
+	 * tree is built the classes can be validated independently of each other.
+	 * Each class is thus validated with its own scope stack and its errors are
+	 * buffered. The errors are then reported in the order of the classes in
+	 * the program.
+	 */
+	private void validateInParallel(final ObjectTypeEnvironment o,
+			SemantError err) throws PossibleNullDereferenceException,
+			UnresolvableSelfTypeException
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(Runtime
+				.getRuntime().availableProcessors());
+		try
+		{
+			List<Future<SemantError>> results = new ArrayList<Future<SemantError>>();
+			for (TreeNode t : classes.getElements())
+			{
+				final Class_ c = (Class_) t;
+				results.add(pool.submit(new Callable<SemantError>()
+				{
+					public SemantError call() throws Exception
+					{
+						ObjectTypeEnvironment env = new ObjectTypeEnvironment(o);
+						SemantError classErr = new SemantError(true);
+						env.enterScope(); // program scope start
+						c.validate(env, classErr);
+						env.exitScope(); // program scope end
+						return classErr;
+					}
+				}));
+			}
+
+			for (Future<SemantError> result : results)
+				err.report(result.get());
+		}
+		catch (InterruptedException ex)
+		{
+			Utilities.fatalError("Interrupted during semantic analysis");
+		}
+		catch (ExecutionException ex)
+		{
+			if (ex.getCause() instanceof PossibleNullDereferenceException)
+				throw (PossibleNullDereferenceException) ex.getCause();
+			if (ex.getCause() instanceof UnresolvableSelfTypeException)
+				throw (UnresolvableSelfTypeException) ex.getCause();
+			if (ex.getCause() instanceof RuntimeException)
+				throw (RuntimeException) ex.getCause();
+			Utilities.fatalError("Unexpected exception during semantic "
+					+ "analysis : " + ex.getCause());
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * This method is the entry point to the code generator. The code of the
+	 * program is generated into an InstructionList which, under -O, is
+	 * optimized and is then lowered to MIPS assembly in one step.
 	 * 
 	 * @param s the output stream
 	 * @see CgenClassTable
 	 * */
 	public void cgen(PrintStream s)
 	{
+		// Fold the constant expressions before the constants are emitted
+		if (Flags.cgen_optimize)
+			for (TreeNode t : classes.getElements())
+				((class_) t).fold();
+
 		ITree iTree = new ITree(classes);
 
 		/**
@@ -128,16 +210,108 @@ public class program extends Program
 
 		CgenLookupTable tbl = new CgenLookupTable(iTree);
 
-		s.print("# start of generated code\n");
+		InstructionList code = new InstructionList();
+		code.comment("start of generated code");
 
-		CgenDataSection.code(iTree, tbl, s);
+		CgenDataSection.code(iTree, tbl, code);
 
-		s.println("# Begin - Class Methods");
-		for (TreeNode t : classes.getElements())
-			((class_) t).code(tbl, s);
-		s.println("# End - Class Methods");
+		code.comment("Begin - Class Methods");
+		if (Flags.parallel)
+			codeInParallel(tbl, code);
+		else
+			for (TreeNode t : classes.getElements())
+				((class_) t).code(tbl, code);
+		code.comment("End - Class Methods");
 
-		s.print("\n# end of generated code\n");
+		if (Flags.cgen_optimize)
+		{
+			RapidTypeAnalysis rta = tbl.getReachability();
+			code.comment("Devirtualized dispatches: "
+					+ tbl.getDevirtualizedCount() + ", inlined: "
+					+ tbl.getInlinedCount());
+			code.comment("Unreachable methods: "
+					+ rta.getUnreachableMethodCount() + ", dead classes: "
+					+ rta.getDeadClassCount());
+			if (Flags.cgen_debug)
+			{
+				System.err.println("Devirtualized dispatches: "
+						+ tbl.getDevirtualizedCount() + ", inlined: "
+						+ tbl.getInlinedCount());
+				System.err.println("Unreachable methods: "
+						+ rta.getUnreachableMethodCount()
+						+ ", dead classes: " + rta.getDeadClassCount());
+			}
+		}
+
+		code.blank();
+		code.comment("end of generated code");
+
+		if (Flags.cgen_optimize)
+		{
+			CodeOptimizer optimizer = new CodeOptimizer();
+			optimizer.optimize(code);
+			for (OptimizationPass p : optimizer.getPassManager().getPasses())
+			{
+				code.comment("Pass " + p.getDescription() + ": " + p.getHits());
+				if (Flags.cgen_debug)
+					System.err.println("Pass " + p.getDescription() + ": "
+							+ p.getHits());
+			}
+		}
+
+		// The drivers write the code through an AsmWriter
+		AsmWriter out = s instanceof AsmWriter ? (AsmWriter) s
+				: new AsmWriter(s);
+		code.lower(out);
+		out.flush();
 	}
 
+	/**
+	 * Generates the code for the methods of the classes concurrently. The
+	 * classes allocate labels from their own namespaces and can thus be coded
+	 * independently of each other. Each class is coded with its own scope
+	 * stack into its own list. The lists are then appended in the order of
+	 * the classes in the program so that the code is the same as that of the
+	 * sequential code generation.
+	 */
+	private void codeInParallel(final CgenLookupTable tbl, InstructionList s)
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(Runtime
+				.getRuntime().availableProcessors());
+		try
+		{
+			List<Future<InstructionList>> results = new ArrayList<Future<InstructionList>>();
+			for (TreeNode t : classes.getElements())
+			{
+				final class_ c = (class_) t;
+				results.add(pool.submit(new Callable<InstructionList>()
+				{
+					public InstructionList call()
+					{
+						InstructionList code = new InstructionList();
+						c.code(new CgenLookupTable(tbl), code);
+						return code;
+					}
+				}));
+			}
+
+			for (Future<InstructionList> result : results)
+				s.addAll(result.get());
+		}
+		catch (InterruptedException ex)
+		{
+			Utilities.fatalError("Interrupted during code generation");
+		}
+		catch (ExecutionException ex)
+		{
+			if (ex.getCause() instanceof RuntimeException)
+				throw (RuntimeException) ex.getCause();
+			Utilities.fatalError("Unexpected exception during code "
+					+ "generation : " + ex.getCause());
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
 }
@@ -4,7 +4,9 @@
 package cool.parser;
 
 import cool.common.AbstractSymbol;
+import cool.common.Flags;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -15,9 +17,14 @@ import cool.semant.SemantUtil;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.DispatchRecord;
+import cool.cgen.InstructionList;
+import cool.cgen.RapidTypeAnalysis;
 import cool.cgen.StringSymbol;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Vector;
 
 /**
@@ -112,8 +119,8 @@ public class static_dispatch extends Expression
 		}
 
 		// is the invoking expression a descendent of the static type qualifier?
-		if (!o.getSuperTypes(SemantUtil.getResolvedType(expr.get_type(), c))
-				.contains(type_name))
+		if (!o.isSubtype(SemantUtil.getResolvedType(expr.get_type(), c),
+				type_name))
 		{
 			// getResolvedType for self@<type_name>.<name>(..., <actual>, ...)
 			err.semantError(c)
@@ -161,7 +168,7 @@ public class static_dispatch extends Expression
 		// non-conforming type of arguments
 		for (int i = 0; i < tActual.size(); i++)
 		{
-			if (!o.getSuperTypes(tActual.get(i)).contains(tFormal.get(i)))
+			if (!o.isSubtype(tActual.get(i), tFormal.get(i)))
 			{
 				err.semantError(c).println(
 						"In call of method " + name + ", type "
@@ -184,51 +191,40 @@ public class static_dispatch extends Expression
 	/**
 	 * Generates code for the 'static dispatch' expression
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 	{
+		// The method invoked is known. Inline it if small and call it
+		// directly otherwise
+		DispatchRecord r = null;
+		if (Flags.cgen_optimize)
+		{
+			r = tbl.getDispatchRecord(type_name, name);
+			if (r.getMethod().isInlinable())
+				return codeInline(r, expr, actual, c, nAR, tbl, s);
+		}
+
 		int voidLabel = CgenSupport.getLabel();
 		int endLabel = CgenSupport.getLabel();
 
-		s.println("# Static Method dispatch\n");
+		s.comment("Static Method dispatch");
+		s.blank();
 
-		s.println("# Save FP");
+		s.comment("Save FP");
 		nAR = CgenSupport.emitPush(CgenSupport.FP, nAR, s);
-		s.println();
-
-		for (TreeNode t : actual.getElements())
-		{
-			s.println("# Save self");
-			nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-			s.println();
-
-			Expression ex = (Expression) t;
-			s.println("# Evaluate actual argument and get it in in $a0");
-			nAR = ex.code(c, nAR, tbl, s);
-			s.println();
-
-			s.println("# Temporarily cache evaluated argument");
-			CgenSupport.emitMove(CgenSupport.T1, CgenSupport.ACC, s);
-			s.println();
+		s.blank();
 
-			s.println("# Restore self");
-			nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-			s.println();
-
-			s.println("# Push argument in Stack");
-			nAR = CgenSupport.emitPush(CgenSupport.T1, nAR, s);
-			s.println();
-		}
+		nAR = codeArguments(actual, c, nAR, tbl, s);
 
-		s.println("# Evaluate invoking object and Get it in $a0");
+		s.comment("Evaluate invoking object and Get it in $a0");
 		nAR = expr.code(c, nAR, tbl, s);
-		s.println();
+		s.blank();
 
 		int nItems = 0;
 
 		{
-			s.println("# Test if invoking object is void");
+			s.comment("Test if invoking object is void");
 			nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
 			CgenSupport.emitFetchClassTag(CgenSupport.ACC, CgenSupport.ACC, s);
 			CgenSupport.emitLoadImm(CgenSupport.T1, CgenSupport.VOID_CLASSTAG,
@@ -238,24 +234,33 @@ public class static_dispatch extends Expression
 			nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
 		}
 
-		s.println("# Get reference to dispatch Table");
-		CgenSupport.emitFetchDispTab(CgenSupport.T1, CgenSupport.ACC, s);
+		if (r != null)
+		{
+			s.comment("Call the method directly");
+			CgenSupport.emitJal(r.getClass_().getName(), name, s);
+			s.blank();
+		}
+		else
+		{
+			s.comment("Get reference to dispatch table of the static type");
+			CgenSupport.emitLoadAddress(CgenSupport.T1, type_name
+					+ CgenSupport.DISPTAB_SUFFIX, s);
 
-		// To do :
-		CgenSupport.emitLoad(CgenSupport.T1,
-				tbl.getMethodOffset(type_name, name), CgenSupport.T1, s);
-		s.println();
+			CgenSupport.emitLoad(CgenSupport.T1,
+					tbl.getMethodOffset(type_name, name), CgenSupport.T1, s);
+			s.blank();
 
-		s.println("# Dispatch");
-		CgenSupport.emitJalr(CgenSupport.T1, s);
-		s.println();
+			s.comment("Dispatch");
+			CgenSupport.emitJalr(CgenSupport.T1, s);
+			s.blank();
+		}
 
 		// The arguments of this AR will be popped by the
 		// callee
 		nAR -= actual.getLength();
-		s.println("# Restore FP");
+		s.comment("Restore FP");
 		nAR = CgenSupport.emitPop(CgenSupport.FP, nAR, s);
-		s.println();
+		s.blank();
 		CgenSupport.emitBranch(endLabel, s);
 
 		nAR = nItems - actual.getLength();
@@ -264,7 +269,7 @@ public class static_dispatch extends Expression
 			nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
 			CgenSupport.emitLoadString(CgenSupport.ACC,
 					(StringSymbol) c.getFilename(), s);
-			CgenSupport.emitLoadImm(CgenSupport.T1, 1, s);
+			CgenSupport.emitLoadImm(CgenSupport.T1, lineNumber, s);
 			CgenSupport.emitJal("_dispatch_abort", s);
 			nAR = CgenSupport.emitPop(CgenSupport.FP, nAR, s);
 		}
@@ -273,4 +278,43 @@ public class static_dispatch extends Expression
 		return nAR;
 	}
 
+	public List<Expression> getSubexpressions()
+	{
+		List<Expression> l = new ArrayList<Expression>();
+		l.add(expr);
+		for (TreeNode t : actual.getElements())
+			l.add((Expression) t);
+		return l;
+	}
+
+	public int getRegisterDemand(class_ c, CgenLookupTable tbl)
+	{
+		return Math.max(super.getRegisterDemand(c, tbl),
+				getInlineRegisterDemand(
+						tbl.getDispatchRecord(type_name, name), tbl));
+	}
+
+	public void analyze(class_ c, RapidTypeAnalysis rta)
+	{
+		super.analyze(c, rta);
+		rta.staticDispatch(type_name, name);
+	}
+
+	/**
+	 * Folds the invoking expression and the arguments
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		expr = expr.fold(env);
+		ConstantFolder.fold(actual, env);
+		return this;
+	}
+
+	public boolean assigns(AbstractSymbol name)
+	{
+		return expr.assigns(name) || ConstantFolder.assigns(actual, name);
+	}
 }
@@ -12,6 +12,7 @@ import cool.semant.SemantError;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
 import cool.cgen.StringSymbol;
 
 import java.io.PrintStream;
@@ -67,14 +68,19 @@ public class string_const extends Expression
 	/**
 	 * Generates code for the 'string_const' expression.
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 
 	{
-		s.println("# String constant");
+		s.comment("String constant");
 		CgenSupport.emitLoadString(CgenSupport.ACC, (StringSymbol) token, s);
-		s.println();
+		s.blank();
 		return nAR;
 	}
+
+	String getValue()
+	{
+		return token.toString();
+	}
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ package cool.parser;
 
 import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -14,6 +15,10 @@ import cool.semant.SemantError;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
+
+import java.util.Arrays;
+import java.util.List;
 
 import java.io.PrintStream;
 
@@ -81,55 +86,69 @@ public class sub extends Expression
 	}
 
 	/**
-	 * Generates code for this expression. This method is to be completed
-	 * in programming assignment 5. (You may add or remove parameters as
-	 * you wish.)
+	 * Generates code for this expression. The result is boxed into a new Int
+	 * object
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
-
+	public int code(class_ c, int nAR, CgenLookupTable tbl, InstructionList s)
 	{
-		s.println("# - expression");
-		s.println();
-
-		s.println("#Save reference to self object.");
-		s.println("# Needed while evaluating the second operand");
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-
-		s.println("# evaluate the first operand and get reference in $a0");
-		nAR = e1.code(c, nAR, tbl, s);
-
-		s.println("# Get the value of the first operand");
-		CgenSupport.emitFetchInt(CgenSupport.T1, CgenSupport.ACC, s);
-
-		s.println("# Restore the self object before evaluating the second operand");
-		nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-
-		s.println("# Save the value of the first operand in the stack");
-		nAR = CgenSupport.emitPush(CgenSupport.T1, nAR, s);
-
-		s.println("# evaluate the second operand and get reference in $a0");
-		nAR = e2.code(c, nAR, tbl, s);
-
-		s.println("# Get the value of the first operand");
-		CgenSupport.emitFetchInt(CgenSupport.ACC, CgenSupport.ACC, s);
+		nAR = codeUnboxed(c, nAR, tbl, s);
+		return CgenSupport.emitBoxInt(nAR, s);
+	}
 
-		s.println("# Restore the value of the first operand from the stack");
-		nAR = CgenSupport.emitPop(CgenSupport.T1, nAR, s);
+	/**
+	 * Generates code which leaves the value of this expression in $a0. The
+	 * operands are evaluated to their values too, without boxing any
+	 * intermediate results
+	 * 
+	 * @param s the list to which the code is added
+	 * */
+	public int codeUnboxed(class_ c, int nAR, CgenLookupTable tbl,
+			InstructionList s)
+	{
+		s.comment("- expression");
+		nAR = codeUnboxedOperands(e1, e2, c, nAR, tbl, s);
 
-		s.println("# Compute and then save result in stack");
+		s.comment("Compute the result");
 		CgenSupport
 				.emitSub(CgenSupport.ACC, CgenSupport.T1, CgenSupport.ACC, s);
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
+		return nAR;
+	}
 
-		s.println("# Create new object to store the result");
-		nAR = CgenSupport.emitCallObjectCopy(TreeConstants.Int, nAR, s);
+	public List<Expression> getSubexpressions()
+	{
+		return Arrays.asList(e1, e2);
+	}
 
-		s.println("# Store result in new object");
-		nAR = CgenSupport.emitPop(CgenSupport.T1, nAR, s);
-		CgenSupport.emitStoreInt(CgenSupport.T1, CgenSupport.ACC, s);
-		return nAR;
+	public int getRegisterDemand(class_ c, CgenLookupTable tbl)
+	{
+		return getOperandsRegisterDemand(e1, e2, c, tbl);
+	}
+
+	/**
+	 * Folds the operands. If both are constants the expression is replaced
+	 * by the difference
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		e1 = e1.fold(env);
+		e2 = e2.fold(env);
+
+		Integer i1 = ConstantFolder.intValue(e1);
+		Integer i2 = ConstantFolder.intValue(e2);
+		if (i1 == null || i2 == null)
+			return this;
+		Expression e = ConstantFolder.intConst(lineNumber, i1.longValue()
+				- i2.longValue());
+		return e == null ? this : e;
 	}
 
+	public boolean assigns(AbstractSymbol name)
+	{
+		return e1.assigns(name) || e2.assigns(name);
+	}
 }
@@ -5,6 +5,7 @@ package cool.parser;
 
 import cool.common.AbstractSymbol;
 import cool.common.PossibleNullDereferenceException;
+import cool.common.SymbolTable;
 import cool.common.TreeConstants;
 import cool.common.UnresolvableSelfTypeException;
 import cool.common.Utilities;
@@ -15,10 +16,14 @@ import cool.semant.SemantUtil;
 
 import cool.cgen.CgenLookupTable;
 import cool.cgen.CgenSupport;
+import cool.cgen.InstructionList;
 import cool.cgen.StringSymbol;
 
 import java.io.PrintStream;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Vector;
 
 /**
@@ -104,123 +109,101 @@ public class typcase extends Expression
 	/**
 	 * Generates code for the typcase expression.
 	 * 
-	 * @param s the output stream
+	 * @param s the list to which the code is added
 	 * */
-	public int code(class_ c, int nAR, CgenLookupTable tbl, PrintStream s)
+	public int code(class_ c, int nAR, final CgenLookupTable tbl,
+			InstructionList s)
 	{
 		int notVoidLabel = CgenSupport.getLabel();
 
-		s.println("# Case expression");
-		s.println();
+		s.comment("Case expression");
+		s.blank();
 
-		s.println("# Save self. Needed while evaluating the LUB branch");
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println();
-
-		s.println("# Evaluate the case expression");
+		s.comment("Evaluate the case expression");
 		nAR = expr.code(c, nAR, tbl, s);
 
-		s.println("# Need to check if the evaluated expression is void");
-		s.println();
-
-		s.println("# Save it");
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println("# Fetch its classtag");
-		CgenSupport.emitFetchClassTag(CgenSupport.ACC, CgenSupport.ACC, s);
-		s.println("# Get the classtag of void");
-		CgenSupport.emitLoadImm(CgenSupport.T1, CgenSupport.VOID_CLASSTAG, s);
-		s.println("# The test. Is the evaluated expression not void?");
-		s.println("# If yes, branch to label" + notVoidLabel);
-		CgenSupport.emitBne(CgenSupport.ACC, CgenSupport.T1, notVoidLabel, s);
-		s.println("# Else, evaluated expression is void.");
+		s.comment("Class tag of the case expression");
+		CgenSupport.emitFetchClassTag(CgenSupport.T1, CgenSupport.ACC, s);
+		s.comment("The test. Is the evaluated expression not void?");
+		s.comment("If yes, branch to label" + notVoidLabel);
+		CgenSupport.emitBgti(CgenSupport.T1, CgenSupport.VOID_CLASSTAG,
+				notVoidLabel, s);
+		s.comment("Else, evaluated expression is void.");
 		CgenSupport.emitLoadString(CgenSupport.ACC,
 				(StringSymbol) c.getFilename(), s);
 		CgenSupport.emitLoadImm(CgenSupport.T1, 1, s);
 		CgenSupport.emitJal("_case_abort2", s);
-		s.println();
+		s.blank();
 
 		CgenSupport.emitLabelDef(notVoidLabel, s);
 
-		s.println("# Restore the evaluated expression");
-		nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-		s.println("# Save the evaluated value.");
-		s.println("# Will need to bind it to the identifier of one of the branches");
-		nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
-		s.println("# Class tag of the case expression");
-		CgenSupport.emitFetchClassTag(CgenSupport.ACC, CgenSupport.ACC, s);
-
-		// Code to jump to a particular branch of execution based on the
-		// dynamic type of the case-expression
-		// Once this is generated, we can generate code to find out
-		// which type among all case-branches is the LUB of the dynamic type.
-		int typeLabel[] = new int[tbl.getCaseTableKeySet().size()];
-		int n = 0;
-		for (int classTag : tbl.getCaseTableKeySet())
-		{
-			CgenSupport.emitLoadImm(CgenSupport.T1, classTag, s);
-			typeLabel[n] = CgenSupport.getLabel();
-			CgenSupport.emitBeq(CgenSupport.ACC, CgenSupport.T1, typeLabel[n],
-					s);
-			n++;
-		}
-		// Incomplete
-		// CgenSupport.emitAbort();
-
-		// Code to get the LUB of the dynamic type of the case expression
-		int branchLabel[] = new int[cases.getLength()];
-		for (int i = 0; i < cases.getLength(); i++)
-			branchLabel[i] = CgenSupport.getLabel();
-		n = 0;
-		for (Collection<Integer> lst : tbl.getCaseTableValues())
+		/*
+		 * Class tags are assigned in preorder. Thus the subtypes of the type of
+		 * a branch have class tags in a contiguous range and a descendant has
+		 * a larger class tag than its ancestors. Testing the branches in the
+		 * decreasing order of the class tags of their types makes the first
+		 * matching branch the one with the least type conforming to the
+		 * dynamic type of the case expression.
+		 */
+		List<branch> branches = new ArrayList<branch>();
+		for (TreeNode t : cases.getElements())
+			branches.add((branch) t);
+		Collections.sort(branches, new Comparator<branch>()
 		{
-			CgenSupport.emitLabelDef(typeLabel[n], s);
-
-			for (int classTag : lst)
+			public int compare(branch b1, branch b2)
 			{
-				CgenSupport.emitLoadImm(CgenSupport.ACC, classTag, s);
-				int m = 0;
-				for (TreeNode t : cases.getElements())
-				{
-					branch b = (branch) t;
-					CgenSupport.emitLoadImm(CgenSupport.T1,
-							tbl.getClassTag(b.getTypeDecl()), s);
-					CgenSupport.emitBeq(CgenSupport.ACC, CgenSupport.T1,
-							branchLabel[m++], s);
-				}
-
+				return tbl.getClassTag(b2.getTypeDecl())
+						- tbl.getClassTag(b1.getTypeDecl());
 			}
+		});
 
-			int nItems = nAR;
-			nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-			nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
-			CgenSupport.emitJal("_case_abort", s);
-			nAR = nItems;
-
-			n++;
+		int branchLabel[] = new int[branches.size()];
+		for (int i = 0; i < branches.size(); i++)
+		{
+			branch b = branches.get(i);
+			branchLabel[i] = CgenSupport.getLabel();
+			int nextLabel = CgenSupport.getLabel();
+			s.comment("Is the dynamic type a subtype of " + b.getTypeDecl()
+					+ "?");
+			CgenSupport.emitBlti(CgenSupport.T1,
+					tbl.getClassTag(b.getTypeDecl()), nextLabel, s);
+			CgenSupport.emitBgti(CgenSupport.T1,
+					tbl.getLastSubtypeClassTag(b.getTypeDecl()), nextLabel, s);
+			CgenSupport.emitBranch(branchLabel[i], s);
+			CgenSupport.emitLabelDef(nextLabel, s);
 		}
+		s.comment("No branch matches. The case expression is in $a0");
+		CgenSupport.emitJal("_case_abort", s);
+		s.blank();
 
 		// Code for each branch of the case expression
 		int endLabel = CgenSupport.getLabel();
-		n = 0;
-		// if (mn != null)
 		int nItems = nAR;
-		for (TreeNode t : cases.getElements())
+		for (int i = 0; i < branches.size(); i++)
 		{
-			branch b = (branch) t;
+			branch b = branches.get(i);
 
 			tbl.enterScope();
 
-			// if (mn != null)
 			nAR = nItems;
-			CgenSupport.emitLabelDef(branchLabel[n++], s);
-			s.println("# Temporarily cache the evaluated variable");
-			nAR = CgenSupport.emitPop(CgenSupport.T1, nAR, s);
+			CgenSupport.emitLabelDef(branchLabel[i], s);
 
-			s.println("# Restore self");
-			nAR = CgenSupport.emitPop(CgenSupport.ACC, nAR, s);
+			String reg = tbl.allocateRegister();
+			if (reg != null)
+			{
+				s.comment("Bind the case variable to " + reg);
+				CgenSupport.emitMove(reg, CgenSupport.ACC, s);
+				tbl.addId(b.getName(), reg);
+
+				nAR = b.getExpr().code(c, nAR, tbl, s);
+				tbl.freeRegister(reg);
+				tbl.exitScope();
+				CgenSupport.emitBranch(endLabel, s);
+				continue;
+			}
 
-			s.println("# Save the case variable in the stack");
-			nAR = CgenSupport.emitPush(CgenSupport.T1, nAR, s);
+			s.comment("Save the case variable in the stack");
+			nAR = CgenSupport.emitPush(CgenSupport.ACC, nAR, s);
 			// The offset is negative as the location of local variables are
 			// below
 			// the FP
@@ -228,7 +211,7 @@ public class typcase extends Expression
 
 			nAR = b.getExpr().code(c, nAR, tbl, s);
 
-			s.println("# Discard case variable");
+			s.comment("Discard case variable");
 			nAR = CgenSupport.emitPop(CgenSupport.T1, nAR, s);
 			tbl.exitScope();
 			CgenSupport.emitBranch(endLabel, s);
@@ -238,4 +221,48 @@ public class typcase extends Expression
 		return nAR;
 	}
 
+	public List<Expression> getSubexpressions()
+	{
+		List<Expression> l = new ArrayList<Expression>();
+		l.add(expr);
+		for (TreeNode t : cases.getElements())
+			l.add(((branch) t).getExpr());
+		return l;
+	}
+
+	/**
+	 * The case variable is held in a register while a branch is evaluated
+	 */
+	public int getRegisterDemand(class_ c, CgenLookupTable tbl)
+	{
+		int demand = expr.getRegisterDemand(c, tbl);
+		for (TreeNode t : cases.getElements())
+			demand = Math.max(demand,
+					1 + ((branch) t).getExpr().getRegisterDemand(c, tbl));
+		return demand;
+	}
+
+	/**
+	 * Folds the case expression and the expressions of the branches
+	 * 
+	 * @param env The constants bound to the variables in scope
+	 * @return The expression which replaces this expression
+	 */
+	public Expression fold(SymbolTable env)
+	{
+		expr = expr.fold(env);
+		for (TreeNode t : cases.getElements())
+			((branch) t).fold(env);
+		return this;
+	}
+
+	public boolean assigns(AbstractSymbol name)
+	{
+		if (expr.assigns(name))
+			return true;
+		for (TreeNode t : cases.getElements())
+			if (((branch) t).assigns(name))
+				return true;
+		return false;
+	}
 }
@@ -13,7 +13,9 @@ import cool.parser.method;
 import cool.cgen.CgenSupport;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Vector;
 
@@ -52,13 +54,31 @@ public class CNode extends class_ implements Comparable<CNode>
 	/** Does this node correspond to a basic class? */
 	private int basic_status;
 
-	/** The class tag of the class this node represents */
-	private int classTag;
+	/**
+	 * The class tag of the class this node represents. Class tags are assigned
+	 * by the inheritance tree in DFS preorder starting from '0' as they are
+	 * used to index the class-name table
+	 */
+	private int classTag = -1;
 
-	/** Used to assign unique class tags */
-	private static int tag = 0;
+	/**
+	 * The largest class tag among the subtypes of this class. As class tags
+	 * are assigned in preorder, the class tags of the subtypes of this class
+	 * are exactly those in the range [classTag, lastSubtypeClassTag]
+	 */
+	private int lastSubtypeClassTag = -1;
 
-	// must start with '0' as this is used to index the class-name table
+	/**
+	 * The methods visible in this class, inherited ones included, by name. A
+	 * redefinition replaces the inherited method
+	 */
+	private Map<AbstractSymbol, method> methods = new HashMap<AbstractSymbol, method>();
+
+	/**
+	 * The attributes visible in this class, inherited ones included, by name.
+	 * An attribute of an ancestor hides a namesake in a descendant
+	 */
+	private Map<AbstractSymbol, attr> attrs = new HashMap<AbstractSymbol, attr>();
 
 	/**
 	 * Constructs a new INode to represent class "c".
@@ -75,13 +95,6 @@ public class CNode extends class_ implements Comparable<CNode>
 		this.children = new Vector<CNode>();
 		this.iTree = iTree;
 		this.basic_status = basic_status;
-		if ((name.toString().equals("<basic class>")
-				|| name.equals(TreeConstants.No_class)
-				|| name.equals(TreeConstants.SELF_TYPE) || name
-					.equals(TreeConstants.prim_slot)))
-			classTag = -1;
-		else
-			classTag = tag++;
 	}
 
 	void addChild(CNode child)
@@ -130,7 +143,7 @@ public class CNode extends class_ implements Comparable<CNode>
 	 * 
 	 * @return true or false
 	 * */
-	boolean basic()
+	public boolean basic()
 	{
 		return basic_status == Basic;
 	}
@@ -159,6 +172,86 @@ public class CNode extends class_ implements Comparable<CNode>
 		return classTag;
 	}
 
+	/**
+	 * @return the largest class tag among the subtypes of this class
+	 */
+	public int getLastSubtypeClassTag()
+	{
+		return lastSubtypeClassTag;
+	}
+
+	/**
+	 * Assigns class tags to this class and its subtypes in DFS preorder
+	 * 
+	 * @param tag The class tag of this class
+	 * @return The class tag to be assigned to the next class in preorder
+	 */
+	int assignClassTags(int tag)
+	{
+		classTag = tag++;
+		for (CNode child : children)
+			tag = child.assignClassTags(tag);
+		lastSubtypeClassTag = tag - 1;
+		return tag;
+	}
+
+	/**
+	 * Indexes the features of this class and its subtypes by name. The
+	 * features of the parent of this class must have already been indexed
+	 */
+	void indexFeatures()
+	{
+		if (parent != null)
+		{
+			methods.putAll(parent.methods);
+			attrs.putAll(parent.attrs);
+		}
+
+		Map<AbstractSymbol, method> ownMethods = new HashMap<AbstractSymbol, method>();
+		for (TreeNode t : features.getElements())
+		{
+			if (t instanceof method)
+			{
+				// The first of the duplicate definitions is the one seen
+				method m = (method) t;
+				if (!ownMethods.containsKey(m.getName()))
+					ownMethods.put(m.getName(), m);
+			}
+			else
+			{
+				attr a = (attr) t;
+				if (!attrs.containsKey(a.getName()))
+					attrs.put(a.getName(), a);
+			}
+		}
+		methods.putAll(ownMethods);
+
+		for (CNode child : children)
+			child.indexFeatures();
+	}
+
+	/**
+	 * Looks up a method visible in this class
+	 * 
+	 * @param mName The name of the method
+	 * @return The method or null if there is no such method
+	 */
+	public method lookupMethod(AbstractSymbol mName)
+	{
+		return methods.get(mName);
+	}
+
+	/**
+	 * Looks up an attribute visible in this class
+	 * 
+	 * @param aName The name of the attribute
+	 * @return The attribute or null if there is no such attribute
+	 */
+	public attr lookupAttr(AbstractSymbol aName)
+	{
+		return attrs.get(aName);
+	}
+
 	/**
 	 * Gets a list of ancestors of this class.
 	 * The current node is also its own ancestor
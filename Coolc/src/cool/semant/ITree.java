@@ -18,7 +18,6 @@ import cool.parser.method;
 import cool.parser.no_expr;
 
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Stack;
 
@@ -47,6 +46,9 @@ public class ITree
 	/** Helps determining if there are cyclic inheritances in the cool program */
 	private CycleFinder cf;
 
+	/** Answers least upper bound queries */
+	private LcaFinder lf;
+
 	/**
 	 * Constructor
 	 * 1. Constructs nodes representing all classes in the cool program and
@@ -273,6 +275,15 @@ public class ITree
 
 		// Detect cycles
 		cf = new CycleFinder(getRoot());
+
+		// Number the classes so that the subtypes of any class have
+		// contiguous class tags. The dummy classes are not reachable from the
+		// root and retain the class tag, -1
+		root.assignClassTags(0);
+		lf = new LcaFinder(root, root.getLastSubtypeClassTag() + 1);
+
+		// Index the features visible in each class
+		root.indexFeatures();
 	}
 
 	/**
@@ -333,14 +344,38 @@ public class ITree
 		return toINode(type).getSuperTypes(Utilities.oldestFirst);
 	}
 
+	/**
+	 * Determines if a type is a subtype of another. Note: A type is also its
+	 * own subtype
+	 * 
+	 * As class tags are assigned in preorder, the subtypes of a class are
+	 * exactly the classes whose class tags lie in the range of class tags of
+	 * the subtree rooted at it. The dummy classes are not a part of the tree
+	 * and are only subtypes of themselves.
+	 * 
+	 * @param t1 The type which is checked for conformance
+	 * @param t2 The type to which t1 should conform
+	 * @return true if t1 is a subtype of t2
+	 */
+	boolean isSubtype(AbstractSymbol t1, AbstractSymbol t2)
+	{
+		if (t1.equals(t2))
+			return true;
+
+		CNode c1 = toINode(t1);
+		CNode c2 = toINode(t2);
+		if (c1.getClassTag() < 0 || c2.getClassTag() < 0)
+			return false;
+		return c2.getClassTag() <= c1.getClassTag()
+				&& c1.getClassTag() <= c2.getLastSubtypeClassTag();
+	}
+
 	/**
 	 * Determines the least upper bound of two specified types.
 	 * 
 	 * The inheritance relationship in cool is a tree(due to single
-	 * inheritance). Thus consider the paths from the root object to the
-	 * specified types. As supertypes(type) returns the supertypes in the
-	 * order of the decreasing types, the lub is the type at which the path
-	 * bisects
+	 * inheritance). Thus the lub is the least common ancestor of the
+	 * specified types in the inheritance tree.
 	 * 
 	 */
 	AbstractSymbol lub(AbstractSymbol t1, AbstractSymbol t2)
@@ -352,19 +387,12 @@ public class ITree
 		else if (t2.equals(TreeConstants.No_type))
 			return t1;
 
-		AbstractSymbol lub = TreeConstants.Object_;
-		for (Iterator<AbstractSymbol> i1 = getSuperTypes(t1).iterator(), i2 = getSuperTypes(
-				t2).iterator(); i1.hasNext() && i2.hasNext();)
-		{
-			AbstractSymbol a1 = i1.next();
-			AbstractSymbol a2 = i2.next();
-			if (a1 != a2)
-			{
-				return lub;
-			}
-			lub = a1; // or a2
-		}
-		return lub;
+		CNode c1 = toINode(t1);
+		CNode c2 = toINode(t2);
+		// The dummy classes are not a part of the tree
+		if (c1.getClassTag() < 0 || c2.getClassTag() < 0)
+			return t1.equals(t2) ? t1 : TreeConstants.Object_;
+		return lf.lca(c1, c2).getName();
 	}
 
 	public boolean hasCycle()
@@ -423,4 +451,84 @@ public class ITree
 			return cycle;
 		}
 	}
+
+	/**
+	 * Finds the least common ancestor of two nodes of the inheritance tree in
+	 * constant time.
+	 * 
+	 * The Euler tour of the tree is recorded along with the depth of each
+	 * visited node. The least common ancestor of two nodes is the shallowest
+	 * node visited between the first visits of the two nodes in the tour. This
+	 * range minimum is looked up in a sparse table of the minimums of all the
+	 * ranges of the tour whose length is a power of 2.
+	 */
+	class LcaFinder
+	{
+		/** Nodes in the order of the Euler tour */
+		private CNode[] tour;
+
+		/** Depths of the nodes in the Euler tour */
+		private int[] depth;
+
+		/** Position of the first visit of a node in the tour. By class tag */
+		private int[] first;
+
+		/**
+		 * sparse[k][i] is the position of the shallowest node among the 2^k
+		 * nodes of the tour starting at position i
+		 */
+		private int[][] sparse;
+
+		/** Number of nodes recorded in the tour */
+		private int size;
+
+		LcaFinder(CNode root, int nClasses)
+		{
+			tour = new CNode[2 * nClasses - 1];
+			depth = new int[2 * nClasses - 1];
+			first = new int[nClasses];
+			visit(root, 0);
+
+			int levels = 1;
+			while ((1 << levels) <= size)
+				levels++;
+			sparse = new int[levels][];
+			sparse[0] = new int[size];
+			for (int i = 0; i < size; i++)
+				sparse[0][i] = i;
+			for (int k = 1; k < levels; k++)
+			{
+				sparse[k] = new int[size - (1 << k) + 1];
+				for (int i = 0; i < sparse[k].length; i++)
+					sparse[k][i] = shallower(sparse[k - 1][i],
+							sparse[k - 1][i + (1 << (k - 1))]);
+			}
+		}
+
+		void visit(CNode nd, int d)
+		{
+			first[nd.getClassTag()] = size;
+			tour[size] = nd;
+			depth[size++] = d;
+			for (CNode child : nd.getChildren())
+			{
+				visit(child, d + 1);
+				tour[size] = nd;
+				depth[size++] = d;
+			}
+		}
+
+		int shallower(int i, int j)
+		{
+			return depth[i] <= depth[j] ? i : j;
+		}
+
+		CNode lca(CNode c1, CNode c2)
+		{
+			int i = Math.min(first[c1.getClassTag()], first[c2.getClassTag()]);
+			int j = Math.max(first[c1.getClassTag()], first[c2.getClassTag()]);
+			int k = 31 - Integer.numberOfLeadingZeros(j - i + 1);
+			return tour[shallower(sparse[k][i], sparse[k][j - (1 << k) + 1])];
+		}
+	}
 }
@@ -5,7 +5,9 @@ import cool.common.PossibleNullDereferenceException;
 import cool.common.SymbolTable;
 import cool.common.UnresolvableSelfTypeException;
 
+import cool.parser.attr;
 import cool.parser.class_;
+import cool.parser.method;
 
 import java.util.Collection;
 
@@ -18,11 +20,37 @@ public class ObjectTypeEnvironment extends SymbolTable
 		this.iTree = iTree;
 	}
 
+	/**
+	 * Creates an environment with an empty scope stack over the same
+	 * inheritance tree as the specified environment
+	 * 
+	 * @param o The specified environment
+	 */
+	public ObjectTypeEnvironment(ObjectTypeEnvironment o)
+	{
+		this(o.iTree);
+	}
+
 	public Collection<AbstractSymbol> getSuperTypes(AbstractSymbol type)
 	{
 		return iTree.getSuperTypes(type);
 	}
 
+	public boolean isSubtype(AbstractSymbol t1, AbstractSymbol t2)
+	{
+		return iTree.isSubtype(t1, t2);
+	}
+
+	public method lookupMethod(AbstractSymbol cName, AbstractSymbol mName)
+	{
+		return iTree.toINode(cName).lookupMethod(mName);
+	}
+
+	public attr lookupAttr(AbstractSymbol cName, AbstractSymbol aName)
+	{
+		return iTree.toINode(cName).lookupAttr(aName);
+	}
+
 	public class_ toClass_(AbstractSymbol type)
 	{
 		return iTree.toClass_(type);
@@ -1,22 +1,56 @@
 package cool.semant;
-import java.io.PrintStream;
 
 import cool.common.AbstractSymbol;
+
 import cool.parser.TreeNode;
 import cool.parser.class_;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
 public class SemantError
 {
 	// For error reporting
 	private int semantErrors;
 	private PrintStream errorStream;
 
+	/** Holds the error messages of a buffered error reporter */
+	private ByteArrayOutputStream buffer;
+
 	public SemantError()
 	{
 		semantErrors = 0;
 		errorStream = System.err;
 	}
 
+	/**
+	 * Creates an error reporter which holds on to the error messages until
+	 * they are reported through another error reporter
+	 * 
+	 * @param buffered Should the error messages be buffered?
+	 */
+	public SemantError(boolean buffered)
+	{
+		this();
+		if (buffered)
+		{
+			buffer = new ByteArrayOutputStream();
+			errorStream = new PrintStream(buffer);
+		}
+	}
+
+	/**
+	 * Reports the errors held by a buffered error reporter through this one
+	 * 
+	 * @param err The buffered error reporter
+	 */
+	public void report(SemantError err)
+	{
+		err.errorStream.flush();
+		errorStream.write(err.buffer.toByteArray(), 0, err.buffer.size());
+		semantErrors += err.semantErrors;
+	}
+
 	/** Returns true if there are any static semantic errors. */
 	public boolean errors()
 	{